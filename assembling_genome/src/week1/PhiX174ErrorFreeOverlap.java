@@ -1,7 +1,32 @@
 package week1;
 
-import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntUnaryOperator;
+import java.util.zip.CRC32C;
 
 /**
  * Solution of problem 1 from week 1.
@@ -18,32 +43,106 @@ import java.util.*;
  * </p>
  */
 public class PhiX174ErrorFreeOverlap {
-    private static final int DEFAULT_READS_NUMBER = 1618;
     private static final int DEFAULT_MIN_OVERLAP_LENGTH = 13;
     private static final Vertex START_VERTEX = new Vertex(0, 0);
+    static final long UNLIMITED_BACKTRACKS = Long.MAX_VALUE;
+    static final long UNLIMITED_TIME = Long.MAX_VALUE;
+    private static final int DEADLINE_CHECK_INTERVAL = 1024;
+    // Backtrack budget of the default layout of a component in the contigs mode.
+    static final long CONTIGS_BACKTRACK_BUDGET = 100_000;
+    private static final int FASTA_LINE_LENGTH = 60;
+    private static final String CONTIGS_OPTION = "--contigs";
 
     private final int minOverlapLength;
+    private final OverlapGraphBuilder overlapGraphBuilder;
+    private final LayoutStrategy layoutStrategy;
+    private final LayoutStrategy contigsLayoutStrategy;
+    private final long backtrackBudget;
+    private final long timeLimitMillis;
+    private final boolean compactUnitigs;
+    private final Statistics statistics = new Statistics();
+    private int containedReads;
 
     PhiX174ErrorFreeOverlap(int minOverlapLength) {
+        this(minOverlapLength, null);
+    }
+
+    PhiX174ErrorFreeOverlap(int minOverlapLength, OverlapGraphBuilder overlapGraphBuilder) {
+        this(minOverlapLength, overlapGraphBuilder, null, UNLIMITED_BACKTRACKS, UNLIMITED_TIME,
+                false);
+    }
+
+    PhiX174ErrorFreeOverlap(int minOverlapLength, OverlapGraphBuilder overlapGraphBuilder,
+                            LayoutStrategy layoutStrategy) {
+        this(minOverlapLength, overlapGraphBuilder, layoutStrategy, false);
+    }
+
+    PhiX174ErrorFreeOverlap(int minOverlapLength, OverlapGraphBuilder overlapGraphBuilder,
+                            LayoutStrategy layoutStrategy, boolean compactUnitigs) {
+        this(minOverlapLength, overlapGraphBuilder, layoutStrategy, UNLIMITED_BACKTRACKS,
+                UNLIMITED_TIME, compactUnitigs);
+    }
+
+    PhiX174ErrorFreeOverlap(int minOverlapLength, OverlapGraphBuilder overlapGraphBuilder,
+                            long backtrackBudget, long timeLimitMillis) {
+        this(minOverlapLength, overlapGraphBuilder, null, backtrackBudget, timeLimitMillis,
+                false);
+    }
+
+    /**
+     * @param overlapGraphBuilder overlap graph construction strategy, {@code null} stands for
+     *                            {@link #buildOverlapGraph(String[])}
+     * @param layoutStrategy      reads layout strategy, {@code null} stands for
+     *                            {@link #buildLongestHamiltonianPath(List[])}
+     * @param backtrackBudget     maximum number of backtracks of the Hamiltonian path search
+     * @param timeLimitMillis     maximum duration of the Hamiltonian path search
+     * @param compactUnitigs      whether to collapse non-branching chains of reads into single
+     *                            vertices before the layout, see {@link UnitigGraph}
+     */
+    private PhiX174ErrorFreeOverlap(int minOverlapLength, OverlapGraphBuilder overlapGraphBuilder,
+                                    LayoutStrategy layoutStrategy, long backtrackBudget,
+                                    long timeLimitMillis, boolean compactUnitigs) {
         this.minOverlapLength = minOverlapLength;
+        this.overlapGraphBuilder = overlapGraphBuilder != null
+                ? overlapGraphBuilder : new PairwiseOverlapGraphBuilder();
+        this.overlapGraphBuilder.setStatistics(statistics);
+        this.layoutStrategy = layoutStrategy != null
+                ? layoutStrategy : new HamiltonianPathLayoutStrategy(backtrackBudget);
+        this.contigsLayoutStrategy = layoutStrategy != null
+                ? layoutStrategy
+                : new HamiltonianPathLayoutStrategy(
+                Math.min(backtrackBudget, CONTIGS_BACKTRACK_BUDGET));
+        this.backtrackBudget = backtrackBudget;
+        this.timeLimitMillis = timeLimitMillis;
+        this.compactUnitigs = compactUnitigs;
     }
 
-    public static void main(String... args) {
-        // Read test data.
-        Scanner stdin = new Scanner(new BufferedInputStream(System.in));
-        Set<String> reads = new HashSet<>();
-        int readsCounter = 0;
-        while (readsCounter++ < DEFAULT_READS_NUMBER && stdin.hasNext()) {
-            reads.add(stdin.nextLine());
+    public static void main(String... args) throws IOException {
+        // Option --contigs switches output to FASTA records of contigs.
+        boolean contigs = args.length > 0 && CONTIGS_OPTION.equals(args[0]);
+        if (contigs) {
+            args = Arrays.copyOfRange(args, 1, args.length);
         }
 
+        // Read test data from the file provided as an argument or from the standard input.
+        MappedReadsReader reader = new MappedReadsReader();
+        ReadStore reads =
+                args.length > 0 ? reader.read(Paths.get(args[0])) : reader.readStandardInput();
+
         // Solve the problem.
         PhiX174ErrorFreeOverlap instance =
                 new PhiX174ErrorFreeOverlap(DEFAULT_MIN_OVERLAP_LENGTH);
-        String genome = instance.assemblyGenome(reads.toArray(new String[reads.size()]));
+        if (contigs) {
+            instance.assemblyContigs(reads, Runtime.getRuntime().availableProcessors(),
+                    System.out);
+            System.err.println(instance.getStatistics().summary());
+            return;
+        }
+        String genome = instance.assemblyGenome(PackedReadStore.of(reads));
 
         // Provide solution to a grader.
         System.out.println(genome);
+        System.err.println(instance.getStatistics().summary());
     }
 
     /**
@@ -54,13 +153,465 @@ public class PhiX174ErrorFreeOverlap {
      */
     public String assemblyGenome(String[] reads) {
         Set<String> readsSet = new HashSet<>(Arrays.asList(reads));
-        String[] readsWithoutDuplicates = readsSet.toArray(new String[readsSet.size()]);
-        List<Vertex>[] adjacencyList = buildOverlapGraph(readsWithoutDuplicates);
-        Deque<Vertex> hamiltonianPath = buildLongestHamiltonianPath(adjacencyList);
+        return assemblyDistinctReads(readsSet.toArray(new String[readsSet.size()]));
+    }
+
+    /**
+     * Assembles the genome from the reads of the store, a string is created only for the first
+     * copy of every read.
+     */
+    public String assemblyGenome(ReadStore reads) {
+        return assemblyDistinctReads(reads.distinctReads());
+    }
+
+    private String assemblyDistinctReads(String[] reads) {
+        String[] readsWithoutDuplicates = removeContainedReads(reads);
+        Deque<Vertex> hamiltonianPath = compactUnitigs
+                ? buildLayout(buildGraph(readsWithoutDuplicates))
+                : buildLayout(buildCompactGraph(readsWithoutDuplicates));
 
         return assemblyGenome(readsWithoutDuplicates, hamiltonianPath);
     }
 
+    /**
+     * Assembles contigs from the reads when coverage gaps break the overlap graph and there is
+     * no single Hamiltonian path.
+     * <p>
+     * Weakly connected components of the overlap graph are found by union-find before any
+     * search and laid out independently in parallel. The layout of a component starts at a read
+     * without predecessors, if there is one. The default Hamiltonian path search of a component
+     * is limited by {@link #CONTIGS_BACKTRACK_BUDGET} backtracks. Reads the layout leaves out
+     * are split into components and laid out again. A contig is treated as circular only if its layout covers
+     * the whole component and the last read overlaps the first one.
+     * </p>
+     * <p>
+     * Contigs are written to the output as FASTA records in the order of components as soon as
+     * the layouts of the preceding components are finished.
+     * </p>
+     *
+     * @return number of contigs
+     */
+    int assemblyContigs(String[] reads, int parallelism, PrintStream out) {
+        Set<String> readsSet = new HashSet<>(Arrays.asList(reads));
+        return assemblyDistinctContigs(readsSet.toArray(new String[readsSet.size()]),
+                parallelism, out);
+    }
+
+    /**
+     * Assembles contigs from the reads of the store, see
+     * {@link #assemblyContigs(String[], int, PrintStream)}.
+     */
+    int assemblyContigs(ReadStore reads, int parallelism, PrintStream out) {
+        return assemblyDistinctContigs(reads.distinctReads(), parallelism, out);
+    }
+
+    private int assemblyDistinctContigs(String[] reads, int parallelism, PrintStream out) {
+        String[] readsWithoutDuplicates = removeContainedReads(reads);
+        List<Vertex>[] adjacencyList = buildGraph(readsWithoutDuplicates);
+        int[] allVertices = new int[adjacencyList.length];
+        for (int i = 0; i < allVertices.length; i++) {
+            allVertices[i] = i;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<List<String>>> tasks = new ArrayList<>();
+            for (int[] component : findComponents(adjacencyList, allVertices)) {
+                tasks.add(pool.submit(() -> assemblyComponent(readsWithoutDuplicates,
+                        adjacencyList, component)));
+            }
+            int contigsNumber = 0;
+            for (ForkJoinTask<List<String>> task : tasks) {
+                for (String contig : task.join()) {
+                    writeFastaRecord(out, "contig_" + (++contigsNumber), contig);
+                }
+                out.flush();
+            }
+            return contigsNumber;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Lays out the connected component of the overlap graph, returns its contigs. Reads the
+     * layout leaves out are split into components which are taken from a worklist, the contigs
+     * of a part follow the contigs of the preceding parts.
+     */
+    private List<String> assemblyComponent(String[] reads, List<Vertex>[] adjacencyList,
+                                           int[] component) {
+        List<String> contigs = new ArrayList<>();
+        Deque<int[]> pending = new ArrayDeque<>();
+        pending.push(component);
+        while (!pending.isEmpty()) {
+            int[] leftover = layoutComponent(reads, adjacencyList, pending.pop(), contigs);
+            if (leftover.length > 0) {
+                List<int[]> parts = findComponents(adjacencyList, leftover);
+                for (int i = parts.size() - 1; i >= 0; i--) {
+                    pending.push(parts.get(i));
+                }
+            }
+        }
+        return contigs;
+    }
+
+    /**
+     * Lays out the component given by sorted vertices and adds its contig.
+     *
+     * @return sorted vertices the layout leaves out
+     */
+    private int[] layoutComponent(String[] reads, List<Vertex>[] adjacencyList, int[] component,
+                                  List<String> contigs) {
+        // Vertices are addressed by positions in the component, found by binary search.
+        boolean[] withPredecessor = new boolean[component.length];
+        for (int vertex : component) {
+            for (Vertex target : adjacencyList[vertex]) {
+                int position = Arrays.binarySearch(component, target.index);
+                if (position >= 0) {
+                    withPredecessor[position] = true;
+                }
+            }
+        }
+        int startPosition = 0;
+        for (int i = 0; i < component.length; i++) {
+            if (!withPredecessor[i]) {
+                startPosition = i;
+                break;
+            }
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        List<Vertex>[] localAdjacencyList = new List[component.length];
+        String[] localReads = new String[component.length];
+        for (int position = 0; position < component.length; position++) {
+            int index = localIndex(position, startPosition);
+            localReads[index] = reads[component[position]];
+            localAdjacencyList[index] = new LinkedList<>();
+            for (Vertex target : adjacencyList[component[position]]) {
+                int targetPosition = Arrays.binarySearch(component, target.index);
+                if (targetPosition >= 0) {
+                    localAdjacencyList[index].add(
+                            new Vertex(localIndex(targetPosition, startPosition), target.weight));
+                }
+            }
+        }
+        sortAdjacencyList(localAdjacencyList);
+        Deque<Vertex> path = buildLayout(localAdjacencyList, contigsLayoutStrategy);
+
+        boolean complete = path.size() == component.length;
+        if (complete && component.length > 1 && stringsOverlap(
+                localReads[path.getLast().index], localReads[0]) >= minOverlapLength) {
+            contigs.add(assemblyGenome(localReads, path));
+        } else {
+            StringBuilder contig = new StringBuilder();
+            for (Vertex vertex : path) {
+                contig.append(localReads[vertex.index], vertex.weight,
+                        localReads[vertex.index].length());
+            }
+            contigs.add(contig.toString());
+        }
+
+        boolean[] used = new boolean[component.length];
+        for (Vertex vertex : path) {
+            used[vertex.index] = true;
+        }
+        int[] leftover = new int[component.length - path.size()];
+        for (int position = 0, i = 0; position < component.length; position++) {
+            if (!used[localIndex(position, startPosition)]) {
+                leftover[i++] = component[position];
+            }
+        }
+        return leftover;
+    }
+
+    /**
+     * Returns the local index of the vertex at the position of the component, the start vertex
+     * gets index 0 and the other vertices keep their order.
+     */
+    private static int localIndex(int position, int startPosition) {
+        if (position == startPosition) {
+            return 0;
+        }
+        return position < startPosition ? position + 1 : position;
+    }
+
+    /**
+     * Finds weakly connected components of the subgraph induced by the sorted vertices,
+     * vertices of a component are sorted and components are ordered by the first vertex.
+     */
+    static List<int[]> findComponents(List<Vertex>[] adjacencyList, int[] vertices) {
+        // Union-find over positions of the vertices, a root is the first position of its set.
+        int[] parent = new int[vertices.length];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        for (int i = 0; i < vertices.length; i++) {
+            for (Vertex target : adjacencyList[vertices[i]]) {
+                int position = Arrays.binarySearch(vertices, target.index);
+                if (position >= 0) {
+                    int root1 = findRoot(parent, i);
+                    int root2 = findRoot(parent, position);
+                    if (root1 != root2) {
+                        parent[Math.max(root1, root2)] = Math.min(root1, root2);
+                    }
+                }
+            }
+        }
+
+        int[] sizes = new int[vertices.length];
+        for (int i = 0; i < vertices.length; i++) {
+            sizes[findRoot(parent, i)]++;
+        }
+        int[][] componentOfRoot = new int[vertices.length][];
+        int[] filled = new int[vertices.length];
+        List<int[]> result = new ArrayList<>();
+        for (int i = 0; i < vertices.length; i++) {
+            int root = parent[i];
+            if (root == i) {
+                componentOfRoot[i] = new int[sizes[i]];
+                result.add(componentOfRoot[i]);
+            }
+            componentOfRoot[root][filled[root]++] = vertices[i];
+        }
+        return result;
+    }
+
+    private static int findRoot(int[] parent, int position) {
+        int root = position;
+        while (parent[root] != root) {
+            root = parent[root];
+        }
+        while (position != root) {
+            int next = parent[position];
+            parent[position] = root;
+            position = next;
+        }
+        return root;
+    }
+
+    /**
+     * Writes the sequence as FASTA record with lines of {@value #FASTA_LINE_LENGTH} symbols.
+     */
+    static void writeFastaRecord(PrintStream out, String name, String sequence) {
+        out.println(">" + name + " length=" + sequence.length());
+        for (int i = 0; i < sequence.length(); i += FASTA_LINE_LENGTH) {
+            out.println(sequence.substring(i, Math.min(i + FASTA_LINE_LENGTH,
+                    sequence.length())));
+        }
+    }
+
+    /**
+     * Assembles the genome from the reads of the incrementally built overlap graph, only the
+     * layout is recalculated.
+     */
+    public String assemblyGenome(IncrementalOverlapGraph overlapGraph) {
+        Deque<Vertex> hamiltonianPath = buildLayout(overlapGraph.getAdjacencyList());
+        return assemblyGenome(overlapGraph.getReads(), hamiltonianPath);
+    }
+
+    /**
+     * Builds the layout with the layout strategy, when unitig compaction is enabled the strategy
+     * works on the graph of unitigs and the result is expanded back to reads.
+     */
+    private Deque<Vertex> buildLayout(List<Vertex>[] adjacencyList) {
+        return buildLayout(adjacencyList, layoutStrategy);
+    }
+
+    private Deque<Vertex> buildLayout(List<Vertex>[] adjacencyList, LayoutStrategy strategy) {
+        long start = System.nanoTime();
+        try {
+            if (!compactUnitigs) {
+                return strategy.buildLayout(adjacencyList);
+            }
+            UnitigGraph unitigGraph = UnitigGraph.of(adjacencyList);
+            return unitigGraph.expand(strategy.buildLayout(unitigGraph.getAdjacencyList()));
+        } finally {
+            statistics.addPhaseTime(Statistics.Phase.LAYOUT, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Builds the layout of the graph in the compact form with the layout strategy.
+     */
+    private Deque<Vertex> buildLayout(CompactOverlapGraph graph) {
+        long start = System.nanoTime();
+        try {
+            return layoutStrategy.buildLayout(graph);
+        } finally {
+            statistics.addPhaseTime(Statistics.Phase.LAYOUT, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Builds the overlap graph in the compact form with the overlap graph builder counting the
+     * emitted edges.
+     */
+    private CompactOverlapGraph buildCompactGraph(String[] reads) {
+        long start = System.nanoTime();
+        CompactOverlapGraph graph = overlapGraphBuilder.buildCompactOverlapGraph(reads);
+        statistics.addPhaseTime(Statistics.Phase.OVERLAP_GRAPH, System.nanoTime() - start);
+        statistics.edgesEmitted.add(graph.getEdgesNumber());
+        return graph;
+    }
+
+    /**
+     * Builds the overlap graph in the compact form for the packed reads with the given indices,
+     * see {@link #buildCompactGraph(String[])}.
+     */
+    private CompactOverlapGraph buildCompactGraph(PackedReadStore reads, int[] readIds) {
+        long start = System.nanoTime();
+        CompactOverlapGraph graph = overlapGraphBuilder.buildCompactOverlapGraph(reads, readIds);
+        statistics.addPhaseTime(Statistics.Phase.OVERLAP_GRAPH, System.nanoTime() - start);
+        statistics.edgesEmitted.add(graph.getEdgesNumber());
+        return graph;
+    }
+
+    /**
+     * Builds the overlap graph with the overlap graph builder counting the emitted edges.
+     */
+    private List<Vertex>[] buildGraph(String[] reads) {
+        long start = System.nanoTime();
+        List<Vertex>[] adjacencyList = overlapGraphBuilder.buildOverlapGraph(reads);
+        statistics.addPhaseTime(Statistics.Phase.OVERLAP_GRAPH, System.nanoTime() - start);
+        long edges = 0;
+        for (List<Vertex> list : adjacencyList) {
+            edges += list.size();
+        }
+        statistics.edgesEmitted.add(edges);
+        return adjacencyList;
+    }
+
+    /**
+     * Assembles the genome from the reads of the packed store. When all distinct reads have the
+     * same length, none of them contains another one, so reads are not decoded: duplicates are
+     * found by hashing the packed bases and the distinct reads go to
+     * {@link OverlapGraphBuilder#buildCompactOverlapGraph(PackedReadStore, int[])}, the default
+     * builder compares them 32 bases at a time. Reads of different lengths are decoded and
+     * assembled by {@link #assemblyGenome(String[])}.
+     */
+    public String assemblyGenome(PackedReadStore reads) {
+        int[] distinct = reads.distinctReads();
+        for (int read : distinct) {
+            if (reads.length(read) != reads.length(distinct[0])) {
+                String[] decoded = new String[distinct.length];
+                for (int i = 0; i < decoded.length; i++) {
+                    decoded[i] = reads.getRead(distinct[i]);
+                }
+                return assemblyDistinctReads(decoded);
+            }
+        }
+        containedReads = 0;
+
+        CompactOverlapGraph graph = buildCompactGraph(reads, distinct);
+        Deque<Vertex> hamiltonianPath = compactUnitigs
+                ? buildLayout(graph.toAdjacencyList()) : buildLayout(graph);
+        return assemblyGenome(reads, distinct, hamiltonianPath);
+    }
+
+    /**
+     * Assembles genome from the packed reads and the path, see
+     * {@link #assemblyGenome(String[], Deque)}.
+     */
+    private String assemblyGenome(PackedReadStore reads, int[] distinct,
+                                  Deque<Vertex> hamiltonianPath) {
+        long start = System.nanoTime();
+        StringBuilder result = new StringBuilder();
+        for (Vertex vertex : hamiltonianPath) {
+            int read = distinct[vertex.index];
+            for (int i = vertex.weight; i < reads.length(read); i++) {
+                result.append(reads.charAt(read, i));
+            }
+        }
+        int circularOverlap =
+                reads.overlap(distinct[hamiltonianPath.getLast().index], distinct[0], 1,
+                        statistics);
+
+        if (circularOverlap > 0) {
+            result.delete(result.length() - circularOverlap, result.length());
+        }
+        statistics.addPhaseTime(Statistics.Phase.ASSEMBLY, System.nanoTime() - start);
+        return result.toString();
+    }
+
+    /**
+     * Removes reads which are substrings of longer reads, they add no information to the genome
+     * but enlarge the overlap graph. Reads are expected to be distinct.
+     * <p>
+     * Reads of every length m that is shorter than the longest read are indexed by Karp-Rabin
+     * fingerprints, then a window of length m is rolled over every longer read and fingerprint
+     * hits are verified by comparison. Time is O(total length x number of distinct lengths),
+     * i.e. a single pass when all reads have the same length.
+     * </p>
+     *
+     * @return reads which are not contained in other reads, in the original order
+     */
+    String[] removeContainedReads(String[] reads) {
+        long startTime = System.nanoTime();
+        TreeMap<Integer, List<Integer>> readsByLength = new TreeMap<>();
+        for (int i = 0; i < reads.length; i++) {
+            readsByLength.computeIfAbsent(reads[i].length(), k -> new ArrayList<>()).add(i);
+        }
+
+        boolean[] contained = new boolean[reads.length];
+        for (Map.Entry<Integer, List<Integer>> entry : readsByLength.entrySet()) {
+            int length = entry.getKey();
+            if (length == 0 || length == readsByLength.lastKey()) {
+                continue;
+            }
+            FingerprintIndex index = new FingerprintIndex(entry.getValue().size(), reads.length);
+            for (int read : entry.getValue()) {
+                index.put(FingerprintIndex.fingerprint(reads[read], 0, length), read);
+            }
+
+            long highestPower = FingerprintIndex.power(length - 1);
+            for (List<Integer> longerReads : readsByLength.tailMap(length, false).values()) {
+                for (int longerRead : longerReads) {
+                    String read = reads[longerRead];
+                    long fingerprint = FingerprintIndex.fingerprint(read, 0, length);
+                    for (int start = 0; start + length <= read.length(); start++) {
+                        if (start > 0) {
+                            fingerprint = FingerprintIndex.roll(fingerprint,
+                                    read.charAt(start - 1), read.charAt(start + length - 1),
+                                    highestPower);
+                        }
+                        for (int candidate = index.get(fingerprint); candidate >= 0;
+                             candidate = index.next(candidate)) {
+                            if (!contained[candidate]
+                                    && read.regionMatches(start, reads[candidate], 0, length)) {
+                                contained[candidate] = true;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        List<String> result = new ArrayList<>(reads.length);
+        for (int i = 0; i < reads.length; i++) {
+            if (!contained[i]) {
+                result.add(reads[i]);
+            }
+        }
+        containedReads = reads.length - result.size();
+        statistics.addPhaseTime(Statistics.Phase.CONTAINED_READS,
+                System.nanoTime() - startTime);
+        return result.toArray(new String[result.size()]);
+    }
+
+    /**
+     * Returns the number of contained reads removed by the last {@link #assemblyGenome(String[])}.
+     */
+    int getContainedReads() {
+        return containedReads;
+    }
+
+    /**
+     * Returns counters and phase timers accumulated by this instance.
+     */
+    Statistics getStatistics() {
+        return statistics;
+    }
+
     /**
      * Builds overlap graph in a form of adjacency list for the provided reads
      */
@@ -91,15 +642,79 @@ public class PhiX174ErrorFreeOverlap {
         return adjacencyList;
     }
 
+    /**
+     * Builds overlap graph for the provided reads in the compact form, the graph is the same as
+     * {@link #buildOverlapGraph(String[])} returns.
+     */
+    CompactOverlapGraph buildCompactOverlapGraph(String[] reads) {
+        EdgeBuffer edges = new EdgeBuffer();
+        for (int i = 0; i < reads.length; i++) {
+            for (int j = 0; j < reads.length; j++) {
+                if (i == j) {
+                    continue;
+                }
+                int overlap = stringsOverlap(reads[i], reads[j]);
+                if (overlap >= this.minOverlapLength) {
+                    edges.add(i, j, overlap);
+                }
+            }
+        }
+        return CompactOverlapGraph.of(reads.length, edges);
+    }
+
+    /**
+     * Builds overlap graph in the compact form for the reads of the packed store with the given
+     * indices comparing them 32 bases at a time, see {@link #buildCompactOverlapGraph(String[])}.
+     */
+    CompactOverlapGraph buildCompactOverlapGraph(PackedReadStore reads, int[] readIds) {
+        EdgeBuffer edges = new EdgeBuffer();
+        for (int i = 0; i < readIds.length; i++) {
+            for (int j = 0; j < readIds.length; j++) {
+                if (i == j) {
+                    continue;
+                }
+                int overlap =
+                        reads.overlap(readIds[i], readIds[j], this.minOverlapLength, statistics);
+                if (overlap >= this.minOverlapLength) {
+                    edges.add(i, j, overlap);
+                }
+            }
+        }
+        return CompactOverlapGraph.of(readIds.length, edges);
+    }
+
+    /**
+     * Sorts every adjacency list of the graph by the overlap weight in descending order, vertices
+     * with the same weight are ordered by index. This is the order {@link #buildOverlapGraph}
+     * produces, so alternative {@link OverlapGraphBuilder} implementations use it to return
+     * identical graphs.
+     */
+    static void sortAdjacencyList(List<Vertex>[] adjacencyList) {
+        for (List<Vertex> list : adjacencyList) {
+            list.sort((v1, v2) -> v1.weight != v2.weight
+                    ? Integer.compare(v2.weight, v1.weight)
+                    : Integer.compare(v1.index, v2.index));
+        }
+    }
+
     /**
      * Calculates an overlap of input strings. Overlap is a length of the string1 suffix that is
      * equal to the string2 prefix. Example: string1 = "AACGT", string2 = "GTCCA". Overlap value
      * is 2 ("GT").
      */
     int stringsOverlap(String string1, String string2) {
+        return stringsOverlap(string1, string2, statistics);
+    }
+
+    /**
+     * Calculates an overlap of input strings, see {@link #stringsOverlap(String, String)}, and
+     * counts the pair and the compared symbols in the statistics.
+     */
+    static int stringsOverlap(String string1, String string2, Statistics statistics) {
         int overlapLength = 0;
         int prefixPosition = 0;
         int suffixPosition = 0;
+        long charsCompared = 0;
 
         while (prefixPosition < string1.length()) {
             int overlapPosition = prefixPosition;
@@ -109,52 +724,174 @@ public class PhiX174ErrorFreeOverlap {
                 overlapPosition++;
                 suffixPosition++;
             }
+            charsCompared += overlapLength;
             if (overlapPosition == string1.length()) {
                 break;
             }
+            // The mismatched symbol
+            charsCompared++;
 
             overlapLength = 0;
             suffixPosition = 0;
             prefixPosition++;
         }
+        statistics.pairsCompared.increment();
+        statistics.charsCompared.add(charsCompared);
         return overlapLength;
     }
 
     /**
      * Build Hamiltonian path for the given graph using greedy approach (on every step select
      * node with the maximum weight).
+     * <p>
+     * The search is a depth first search with backtracking driven by an explicit stack, so its
+     * depth is not limited by the thread stack size. If the number of backtracks exceeds the
+     * budget or the time limit expires, the longest path found so far is returned.
+     * </p>
      *
      * @param adjacencyList graph
      * @return linked list of vertices that represent the Hamiltonian path for the given graph
      */
     Deque<Vertex> buildLongestHamiltonianPath(List<Vertex>[] adjacencyList) {
-        boolean[] visitedVertices = new boolean[adjacencyList.length];
-        Deque<Vertex> resultQueue = new LinkedList<>();
-        addVertexToLongestHamiltonianPath(adjacencyList, resultQueue, visitedVertices,
-                START_VERTEX);
-        return resultQueue;
+        return buildLongestHamiltonianPath(CompactOverlapGraph.of(adjacencyList));
     }
 
     /**
-     * Recursive method for adding another vertex to a Hamiltonian path for the provide graph.
+     * Builds Hamiltonian path for the graph in the compact form, see
+     * {@link #buildLongestHamiltonianPath(List[])}.
      */
-    boolean addVertexToLongestHamiltonianPath(List<Vertex>[] adjacencyList, Deque<Vertex> path,
-                                              boolean[] visited, Vertex vertex) {
-        path.add(vertex);
-        visited[vertex.index] = true;
+    Deque<Vertex> buildLongestHamiltonianPath(CompactOverlapGraph graph) {
+        return buildLongestHamiltonianPath(graph, backtrackBudget);
+    }
 
-        if (path.size() == adjacencyList.length) {
-            return true;
-        }
-        for (Vertex v : adjacencyList[vertex.index]) {
-            if (!visited[v.index] && addVertexToLongestHamiltonianPath(adjacencyList, path, visited, v)) {
-                return true;
+    private Deque<Vertex> buildLongestHamiltonianPath(CompactOverlapGraph graph,
+                                                      long backtrackBudget) {
+        long deadline = timeLimitMillis == UNLIMITED_TIME
+                ? Long.MAX_VALUE : System.nanoTime() + timeLimitMillis * 1_000_000L;
+        int verticesNumber = graph.getVerticesNumber();
+        boolean[] visited = new boolean[verticesNumber];
+        // Path as vertex and edge positions, position of the next edge to try for every vertex.
+        int[] path = new int[verticesNumber];
+        int[] pathEdges = new int[verticesNumber];
+        int[] nextEdge = new int[verticesNumber];
+        // Longest dead end path, its first bestPathPrefix vertices are equal to the current path.
+        int[] bestPath = new int[verticesNumber];
+        int[] bestPathEdges = new int[verticesNumber];
+        int bestPathLength = 0;
+        int bestPathPrefix = 0;
+
+        int depth = 0;
+        path[depth] = START_VERTEX.index;
+        pathEdges[depth] = -1;
+        nextEdge[depth] = graph.getOffset(START_VERTEX.index);
+        visited[START_VERTEX.index] = true;
+        depth++;
+        long backtracks = 0;
+        long steps = 0;
+        int maxDepth = depth;
+
+        while (depth > 0 && depth < verticesNumber) {
+            int top = depth - 1;
+            int edgesEnd = graph.getOffset(path[top] + 1);
+            int edge = nextEdge[top];
+            while (edge < edgesEnd && visited[graph.getTarget(edge)]) {
+                edge++;
+            }
+
+            if (edge < edgesEnd) {
+                nextEdge[top] = edge + 1;
+                int next = graph.getTarget(edge);
+                path[depth] = next;
+                pathEdges[depth] = edge;
+                nextEdge[depth] = graph.getOffset(next);
+                visited[next] = true;
+                depth++;
+                maxDepth = Math.max(maxDepth, depth);
+            } else {
+                if (depth > bestPathLength) {
+                    System.arraycopy(path, bestPathPrefix, bestPath, bestPathPrefix,
+                            depth - bestPathPrefix);
+                    System.arraycopy(pathEdges, bestPathPrefix, bestPathEdges, bestPathPrefix,
+                            depth - bestPathPrefix);
+                    bestPathLength = depth;
+                    bestPathPrefix = depth;
+                }
+                depth--;
+                visited[path[depth]] = false;
+                bestPathPrefix = Math.min(bestPathPrefix, depth);
+                backtracks++;
+                if (backtracks > backtrackBudget) {
+                    break;
+                }
+            }
+            if (++steps % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+                break;
             }
         }
-        Vertex last = path.removeLast();
-        visited[last.index] = false;
 
-        return false;
+        statistics.searchDepth.accumulate(maxDepth);
+        statistics.backtracks.add(backtracks);
+        if (depth > bestPathLength) {
+            return toVertexPath(graph, path, pathEdges, depth);
+        }
+        return toVertexPath(graph, bestPath, bestPathEdges, bestPathLength);
+    }
+
+    private static Deque<Vertex> toVertexPath(CompactOverlapGraph graph, int[] path,
+                                              int[] pathEdges, int length) {
+        Deque<Vertex> result = new LinkedList<>();
+        if (length > 0) {
+            result.add(START_VERTEX);
+        }
+        for (int i = 1; i < length; i++) {
+            result.add(new Vertex(path[i], graph.getWeight(pathEdges[i])));
+        }
+        return result;
+    }
+
+    /**
+     * Default overlap graph builder comparing all pairs of reads with
+     * {@link #stringsOverlap(String, String)}, or with {@link PackedReadStore#overlap} for the
+     * packed reads, the compact graph is built from the edges without the adjacency list.
+     */
+    private class PairwiseOverlapGraphBuilder implements OverlapGraphBuilder {
+        @Override
+        public List<Vertex>[] buildOverlapGraph(String[] reads) {
+            return PhiX174ErrorFreeOverlap.this.buildOverlapGraph(reads);
+        }
+
+        @Override
+        public CompactOverlapGraph buildCompactOverlapGraph(String[] reads) {
+            return PhiX174ErrorFreeOverlap.this.buildCompactOverlapGraph(reads);
+        }
+
+        @Override
+        public CompactOverlapGraph buildCompactOverlapGraph(PackedReadStore reads,
+                                                            int[] readIds) {
+            return PhiX174ErrorFreeOverlap.this.buildCompactOverlapGraph(reads, readIds);
+        }
+    }
+
+    /**
+     * Default layout strategy, the longest Hamiltonian path of the graph in the compact form
+     * found within the backtrack budget.
+     */
+    private class HamiltonianPathLayoutStrategy implements LayoutStrategy {
+        private final long backtrackBudget;
+
+        HamiltonianPathLayoutStrategy(long backtrackBudget) {
+            this.backtrackBudget = backtrackBudget;
+        }
+
+        @Override
+        public Deque<Vertex> buildLayout(List<Vertex>[] adjacencyList) {
+            return buildLayout(CompactOverlapGraph.of(adjacencyList));
+        }
+
+        @Override
+        public Deque<Vertex> buildLayout(CompactOverlapGraph graph) {
+            return buildLongestHamiltonianPath(graph, backtrackBudget);
+        }
     }
 
     /**
@@ -171,6 +908,7 @@ public class PhiX174ErrorFreeOverlap {
      * CATTTAC..(overlap of n-2 reads)..TGCSTAAA
      */
     String assemblyGenome(String[] reads, Deque<Vertex> hamiltonianPath) {
+        long start = System.nanoTime();
         StringBuilder result = new StringBuilder();
         for (Vertex vertex : hamiltonianPath) {
             String read = reads[vertex.index];
@@ -182,23 +920,3468 @@ public class PhiX174ErrorFreeOverlap {
         if (circularOverlap > 0) {
             result.delete(result.length() - circularOverlap, result.length());
         }
+        statistics.addPhaseTime(Statistics.Phase.ASSEMBLY, System.nanoTime() - start);
         return result.toString();
     }
 
     static class Vertex implements Comparable {
         int index;
         int weight;
+        // Number of edit operations in the overlap, non zero only for approximate overlaps.
+        int errors;
 
         public Vertex(int index, int weight) {
             this.index = index;
             this.weight = weight;
         }
 
+        public Vertex(int index, int weight, int errors) {
+            this(index, weight);
+            this.errors = errors;
+        }
+
         @Override
         public int compareTo(Object o) {
             Vertex other = (Vertex) o;
             return Integer.compare(other.weight, this.weight);
         }
     }
-}
 
+    /**
+     * Strategy of the overlap graph construction. Implementations must return the same graph as
+     * {@link #buildOverlapGraph(String[])} does.
+     */
+    interface OverlapGraphBuilder {
+        List<Vertex>[] buildOverlapGraph(String[] reads);
+
+        /**
+         * Sets the statistics of the assembler which uses the builder, a builder that compares
+         * reads counts the comparisons there. By default comparisons are not counted.
+         */
+        default void setStatistics(Statistics statistics) {
+        }
+
+        /**
+         * Builds the overlap graph in the compact form, by default it is converted from the
+         * adjacency list.
+         */
+        default CompactOverlapGraph buildCompactOverlapGraph(String[] reads) {
+            return CompactOverlapGraph.of(buildOverlapGraph(reads));
+        }
+
+        /**
+         * Builds the overlap graph in the compact form for the reads of the packed store with the
+         * given indices, vertex i is the read readIds[i]. By default the reads are decoded.
+         */
+        default CompactOverlapGraph buildCompactOverlapGraph(PackedReadStore reads,
+                                                             int[] readIds) {
+            String[] decoded = new String[readIds.length];
+            for (int i = 0; i < decoded.length; i++) {
+                decoded[i] = reads.getRead(readIds[i]);
+            }
+            return buildCompactOverlapGraph(decoded);
+        }
+    }
+
+    /**
+     * Builds overlap graph using generalized suffix array of all reads.
+     * <p>
+     * Reads are concatenated into a single text separated by a symbol which is smaller than any
+     * read symbol. Suffixes of a read that are followed by the separator ("terminal" suffixes)
+     * are the overlap candidates, a read overlaps with the other read if its terminal suffix is a
+     * prefix of the other read. All suffixes starting with the string X occupy a contiguous
+     * interval of the suffix array and the terminal suffix X$ is the first one in it, so during a
+     * single scan of the suffix array the terminal suffixes are kept in a stack until LCP value
+     * drops below their length. Every read start found while scanning overlaps with the reads
+     * in the stack.
+     * </p>
+     * <p>
+     * Suffix array is built by prefix doubling with counting sort in O(N log N), LCP array is
+     * built by Kasai algorithm in O(N), where N is the total length of the reads. The scan takes
+     * O(N + size of the stack at read starts) which is close to the output size.
+     * </p>
+     */
+    static class SuffixArrayOverlapGraphBuilder implements OverlapGraphBuilder {
+        private static final int SENTINEL = 0;
+        private static final int SEPARATOR = 1;
+        private static final int ALPHABET_OFFSET = 2;
+
+        private final int minOverlapLength;
+
+        SuffixArrayOverlapGraphBuilder(int minOverlapLength) {
+            this.minOverlapLength = Math.max(1, minOverlapLength);
+        }
+
+        @Override
+        public List<Vertex>[] buildOverlapGraph(String[] reads) {
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            List<Vertex>[] adjacencyList = new List[reads.length];
+            for (int i = 0; i < adjacencyList.length; i++) {
+                adjacencyList[i] = new LinkedList<>();
+            }
+
+            int textLength = 1;
+            for (String read : reads) {
+                textLength += read.length() + 1;
+            }
+            int[] text = new int[textLength];
+            // Read index and distance to the read end for every position of the text.
+            int[] readOfPosition = new int[textLength];
+            int[] suffixLength = new int[textLength];
+            int position = 0;
+            for (int i = 0; i < reads.length; i++) {
+                String read = reads[i];
+                for (int j = 0; j < read.length(); j++) {
+                    text[position] = read.charAt(j) + ALPHABET_OFFSET;
+                    readOfPosition[position] = i;
+                    suffixLength[position] = read.length() - j;
+                    position++;
+                }
+                text[position] = SEPARATOR;
+                readOfPosition[position] = -1;
+                position++;
+            }
+            text[position] = SENTINEL;
+            readOfPosition[position] = -1;
+
+            int[] suffixArray = buildSuffixArray(text);
+            int[] lcp = buildLcpArray(text, suffixArray);
+            scanSuffixArray(reads, suffixArray, lcp, readOfPosition, suffixLength, adjacencyList);
+
+            sortAdjacencyList(adjacencyList);
+            return adjacencyList;
+        }
+
+        /**
+         * Scans suffix array and adds an edge for every terminal suffix that is a prefix of a read.
+         * Terminal suffixes equal to each other go in a row, they are handled as a single block so
+         * reads equal to the suffix get edges from all of them.
+         */
+        private void scanSuffixArray(String[] reads, int[] suffixArray, int[] lcp,
+                                     int[] readOfPosition, int[] suffixLength,
+                                     List<Vertex>[] adjacencyList) {
+            int[] stackReads = new int[suffixArray.length];
+            int[] stackLengths = new int[suffixArray.length];
+            int stackSize = 0;
+            // Last read start which added an edge from the read, used to skip shorter overlaps.
+            int[] lastTarget = new int[reads.length];
+            Arrays.fill(lastTarget, -1);
+
+            int rank = 0;
+            while (rank < suffixArray.length) {
+                while (stackSize > 0 && stackLengths[stackSize - 1] > lcp[rank]) {
+                    stackSize--;
+                }
+
+                int blockEnd = rank + 1;
+                int blockLength = terminalLength(suffixArray[rank], readOfPosition, suffixLength);
+                if (blockLength > 0) {
+                    while (blockEnd < suffixArray.length && lcp[blockEnd] == blockLength
+                            && terminalLength(suffixArray[blockEnd], readOfPosition,
+                            suffixLength) == blockLength) {
+                        blockEnd++;
+                    }
+                }
+
+                for (int r = rank; r < blockEnd; r++) {
+                    int suffix = suffixArray[r];
+                    if (blockLength >= minOverlapLength) {
+                        stackReads[stackSize] = readOfPosition[suffix];
+                        stackLengths[stackSize] = blockLength;
+                        stackSize++;
+                    }
+                }
+                for (int r = rank; r < blockEnd; r++) {
+                    int suffix = suffixArray[r];
+                    int target = readOfPosition[suffix];
+                    if (target < 0 || suffixLength[suffix] != reads[target].length()) {
+                        continue;
+                    }
+                    // Stack lengths are non-decreasing, the topmost entry of a read is the longest.
+                    for (int s = stackSize - 1; s >= 0; s--) {
+                        int source = stackReads[s];
+                        if (source != target && lastTarget[source] != suffix) {
+                            lastTarget[source] = suffix;
+                            adjacencyList[source].add(new Vertex(target, stackLengths[s]));
+                        }
+                    }
+                }
+                rank = blockEnd;
+            }
+        }
+
+        /**
+         * Returns the length of the suffix if it is followed by the separator, 0 otherwise.
+         */
+        private static int terminalLength(int suffix, int[] readOfPosition, int[] suffixLength) {
+            return readOfPosition[suffix] < 0 ? 0 : suffixLength[suffix];
+        }
+
+        /**
+         * Builds suffix array of the text terminated by the unique smallest symbol using prefix
+         * doubling on cyclic shifts.
+         */
+        static int[] buildSuffixArray(int[] text) {
+            int n = text.length;
+            int alphabetSize = 0;
+            for (int symbol : text) {
+                alphabetSize = Math.max(alphabetSize, symbol + 1);
+            }
+
+            int[] order = new int[n];
+            int[] classes = new int[n];
+            int[] count = new int[Math.max(alphabetSize, n)];
+            for (int symbol : text) {
+                count[symbol]++;
+            }
+            for (int i = 1; i < alphabetSize; i++) {
+                count[i] += count[i - 1];
+            }
+            for (int i = n - 1; i >= 0; i--) {
+                order[--count[text[i]]] = i;
+            }
+            classes[order[0]] = 0;
+            int classesNumber = 1;
+            for (int i = 1; i < n; i++) {
+                if (text[order[i]] != text[order[i - 1]]) {
+                    classesNumber++;
+                }
+                classes[order[i]] = classesNumber - 1;
+            }
+
+            int[] newOrder = new int[n];
+            int[] newClasses = new int[n];
+            for (int length = 1; length < n && classesNumber < n; length <<= 1) {
+                for (int i = 0; i < n; i++) {
+                    newOrder[i] = order[i] - length;
+                    if (newOrder[i] < 0) {
+                        newOrder[i] += n;
+                    }
+                }
+                Arrays.fill(count, 0, classesNumber, 0);
+                for (int i = 0; i < n; i++) {
+                    count[classes[newOrder[i]]]++;
+                }
+                for (int i = 1; i < classesNumber; i++) {
+                    count[i] += count[i - 1];
+                }
+                for (int i = n - 1; i >= 0; i--) {
+                    order[--count[classes[newOrder[i]]]] = newOrder[i];
+                }
+
+                newClasses[order[0]] = 0;
+                classesNumber = 1;
+                for (int i = 1; i < n; i++) {
+                    int current = order[i];
+                    int previous = order[i - 1];
+                    if (classes[current] != classes[previous]
+                            || classes[(current + length) % n] != classes[(previous + length) % n]) {
+                        classesNumber++;
+                    }
+                    newClasses[current] = classesNumber - 1;
+                }
+                int[] swap = classes;
+                classes = newClasses;
+                newClasses = swap;
+            }
+            return order;
+        }
+
+        /**
+         * Builds LCP array using Kasai algorithm: lcp[i] is the longest common prefix of the
+         * suffixes suffixArray[i - 1] and suffixArray[i]. Separators never match, so common
+         * prefixes never cross read boundaries.
+         */
+        static int[] buildLcpArray(int[] text, int[] suffixArray) {
+            int n = text.length;
+            int[] rank = new int[n];
+            for (int i = 0; i < n; i++) {
+                rank[suffixArray[i]] = i;
+            }
+
+            int[] lcp = new int[n];
+            int common = 0;
+            for (int i = 0; i < n; i++) {
+                if (rank[i] == 0) {
+                    common = 0;
+                    continue;
+                }
+                int previous = suffixArray[rank[i] - 1];
+                while (i + common < n && previous + common < n
+                        && text[i + common] >= ALPHABET_OFFSET
+                        && text[i + common] == text[previous + common]) {
+                    common++;
+                }
+                lcp[rank[i]] = common;
+                if (common > 0) {
+                    common--;
+                }
+            }
+            return lcp;
+        }
+    }
+
+    /**
+     * Builds overlap graph verifying only the pairs of reads that share a minimizer seed.
+     * <p>
+     * A (w,k) minimizer is the smallest k-mer (by hash) among w consecutive k-mers. Minimizers of
+     * every read prefix of length minOverlapLength are indexed, then minimizers of the whole read
+     * are looked up in the index. If the suffix of the read overlaps with the prefix of the other
+     * read by at least minOverlapLength symbols, both reads contain the same window of w k-mers,
+     * therefore the same minimizer is found as long as w + k - 1 <= minOverlapLength. Candidate
+     * pairs are verified with {@link #stringsOverlap(String, String)}, so the graph is the same
+     * as {@link #buildOverlapGraph(String[])} returns.
+     * </p>
+     */
+    static class MinimizerOverlapGraphBuilder implements OverlapGraphBuilder {
+        private static final long HASH_BASE = 1_000_003L;
+
+        private final int minOverlapLength;
+        private final int windowSize;
+        private final int kmerLength;
+        private Statistics statistics = new Statistics();
+        private long verifiedPairs;
+        private long skippedPairs;
+
+        MinimizerOverlapGraphBuilder(int minOverlapLength, int windowSize, int kmerLength) {
+            if (windowSize < 1 || kmerLength < 1 || windowSize + kmerLength - 1 > minOverlapLength) {
+                throw new IllegalArgumentException("Minimizer window " + windowSize + " of "
+                        + kmerLength + "-mers does not fit into overlap of " + minOverlapLength);
+            }
+            this.minOverlapLength = minOverlapLength;
+            this.windowSize = windowSize;
+            this.kmerLength = kmerLength;
+        }
+
+        @Override
+        public void setStatistics(Statistics statistics) {
+            this.statistics = statistics;
+        }
+
+        @Override
+        public List<Vertex>[] buildOverlapGraph(String[] reads) {
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            List<Vertex>[] adjacencyList = new List[reads.length];
+            for (int i = 0; i < adjacencyList.length; i++) {
+                adjacencyList[i] = new LinkedList<>();
+            }
+
+            // Index entries are (seed hash << 32 | seed number) sorted by hash.
+            List<int[]> prefixSeeds = new ArrayList<>();
+            for (int i = 0; i < reads.length; i++) {
+                int prefixLength = Math.min(minOverlapLength, reads[i].length());
+                for (int[] seed : findMinimizers(reads[i], prefixLength)) {
+                    prefixSeeds.add(new int[]{seed[0], i, seed[1]});
+                }
+            }
+            long[] index = new long[prefixSeeds.size()];
+            for (int s = 0; s < index.length; s++) {
+                index[s] = ((long) prefixSeeds.get(s)[0] << 32) | s;
+            }
+            Arrays.sort(index);
+
+            long verified = 0;
+            int[] lastCandidateSource = new int[reads.length];
+            Arrays.fill(lastCandidateSource, -1);
+            for (int i = 0; i < reads.length; i++) {
+                String read = reads[i];
+                for (int[] seed : findMinimizers(read, read.length())) {
+                    int position = lowerBound(index, (long) seed[0] << 32);
+                    for (; position < index.length && (int) (index[position] >> 32) == seed[0];
+                         position++) {
+                        int[] prefixSeed = prefixSeeds.get((int) index[position]);
+                        int j = prefixSeed[1];
+                        int overlapStart = seed[1] - prefixSeed[2];
+                        if (j == i || lastCandidateSource[j] == i || overlapStart < 0
+                                || read.length() - overlapStart < minOverlapLength) {
+                            continue;
+                        }
+                        lastCandidateSource[j] = i;
+                        verified++;
+                        int overlap = stringsOverlap(read, reads[j], statistics);
+                        if (overlap >= minOverlapLength) {
+                            adjacencyList[i].add(new Vertex(j, overlap));
+                        }
+                    }
+                }
+            }
+
+            this.verifiedPairs = verified;
+            this.skippedPairs = (long) reads.length * (reads.length - 1) - verified;
+            sortAdjacencyList(adjacencyList);
+            return adjacencyList;
+        }
+
+        /**
+         * Finds (w,k) minimizers of the string prefix of the given length. Every minimizer is
+         * returned as {hash, position}, the leftmost k-mer wins on equal hashes.
+         */
+        List<int[]> findMinimizers(String read, int length) {
+            List<int[]> result = new ArrayList<>();
+            int kmersNumber = length - kmerLength + 1;
+            if (kmersNumber < 1) {
+                return result;
+            }
+
+            int[] hashes = new int[kmersNumber];
+            long highestPower = 1;
+            for (int i = 1; i < kmerLength; i++) {
+                highestPower *= HASH_BASE;
+            }
+            long rollingHash = 0;
+            for (int i = 0; i < length; i++) {
+                if (i >= kmerLength) {
+                    rollingHash -= read.charAt(i - kmerLength) * highestPower;
+                }
+                rollingHash = rollingHash * HASH_BASE + read.charAt(i);
+                if (i >= kmerLength - 1) {
+                    hashes[i - kmerLength + 1] = mix(rollingHash);
+                }
+            }
+
+            // Monotonic deque of k-mer positions with increasing hashes.
+            int[] deque = new int[kmersNumber];
+            int head = 0;
+            int tail = 0;
+            int lastMinimizer = -1;
+            int window = Math.min(windowSize, kmersNumber);
+            for (int i = 0; i < kmersNumber; i++) {
+                while (tail > head && hashes[deque[tail - 1]] > hashes[i]) {
+                    tail--;
+                }
+                deque[tail++] = i;
+                if (deque[head] <= i - window) {
+                    head++;
+                }
+                if (i >= window - 1 && deque[head] != lastMinimizer) {
+                    lastMinimizer = deque[head];
+                    result.add(new int[]{hashes[lastMinimizer], lastMinimizer});
+                }
+            }
+            return result;
+        }
+
+        long getVerifiedPairs() {
+            return verifiedPairs;
+        }
+
+        long getSkippedPairs() {
+            return skippedPairs;
+        }
+
+        int getWindowSize() {
+            return windowSize;
+        }
+
+        int getKmerLength() {
+            return kmerLength;
+        }
+
+        private static int lowerBound(long[] index, long key) {
+            int low = 0;
+            int high = index.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (index[middle] < key) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Finalization step of MurmurHash3, spreads polynomial hash bits so that minimizers are
+         * not biased towards lexicographically small k-mers.
+         */
+        private static int mix(long hash) {
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            hash *= 0xc4ceb9fe1a85ec53L;
+            hash ^= hash >>> 33;
+            return (int) hash;
+        }
+    }
+
+    /**
+     * Builds overlap graph on several threads.
+     * <p>
+     * The space of the ordered pairs of reads is split into square tiles of tileSize x tileSize
+     * reads small enough to keep both groups of reads in a CPU cache. Tiles are processed by
+     * {@link ForkJoinPool} tasks which split the range of tiles recursively, so idle workers
+     * steal the remaining halves. Every worker collects edges into its own buffer, buffers are
+     * merged after all tiles are done and adjacency lists are sorted the same way as
+     * {@link #buildOverlapGraph(String[])} does, so the result does not depend on scheduling.
+     * Overlaps are computed by {@link OverlapKernel} on byte encoded reads.
+     * </p>
+     */
+    static class ParallelOverlapGraphBuilder implements OverlapGraphBuilder {
+        static final int DEFAULT_TILE_SIZE = 64;
+
+        private final int minOverlapLength;
+        private final int parallelism;
+        private final int tileSize;
+        private final OverlapKernel overlapKernel;
+
+        ParallelOverlapGraphBuilder(int minOverlapLength) {
+            this(minOverlapLength, Runtime.getRuntime().availableProcessors(), DEFAULT_TILE_SIZE);
+        }
+
+        ParallelOverlapGraphBuilder(int minOverlapLength, int parallelism, int tileSize) {
+            this(minOverlapLength, parallelism, tileSize, new VectorizedOverlapKernel());
+        }
+
+        ParallelOverlapGraphBuilder(int minOverlapLength, int parallelism, int tileSize,
+                                    OverlapKernel overlapKernel) {
+            this.minOverlapLength = minOverlapLength;
+            this.parallelism = parallelism;
+            this.tileSize = tileSize;
+            this.overlapKernel = overlapKernel;
+        }
+
+        @Override
+        public List<Vertex>[] buildOverlapGraph(String[] reads) {
+            byte[][] encodedReads = encodeReads(reads);
+            int tilesPerSide = (reads.length + tileSize - 1) / tileSize;
+            List<EdgeBuffer> buffers = Collections.synchronizedList(new ArrayList<>());
+            ThreadLocal<EdgeBuffer> threadBuffer = ThreadLocal.withInitial(() -> {
+                EdgeBuffer buffer = new EdgeBuffer();
+                buffers.add(buffer);
+                return buffer;
+            });
+
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new TilesTask(encodedReads, threadBuffer, tilesPerSide, 0,
+                        tilesPerSide * tilesPerSide));
+            } finally {
+                pool.shutdown();
+            }
+
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            List<Vertex>[] adjacencyList = new List[reads.length];
+            for (int i = 0; i < adjacencyList.length; i++) {
+                adjacencyList[i] = new LinkedList<>();
+            }
+            for (EdgeBuffer buffer : buffers) {
+                for (int e = 0; e < buffer.size; e++) {
+                    adjacencyList[buffer.sources[e]].add(
+                            new Vertex(buffer.targets[e], buffer.weights[e]));
+                }
+            }
+            sortAdjacencyList(adjacencyList);
+            return adjacencyList;
+        }
+
+        /**
+         * Computes overlaps of all ordered pairs of reads from the given tile.
+         */
+        private void processTile(byte[][] reads, int tile, int tilesPerSide, EdgeBuffer buffer) {
+            int sourceStart = (tile / tilesPerSide) * tileSize;
+            int targetStart = (tile % tilesPerSide) * tileSize;
+            int sourceEnd = Math.min(sourceStart + tileSize, reads.length);
+            int targetEnd = Math.min(targetStart + tileSize, reads.length);
+            for (int i = sourceStart; i < sourceEnd; i++) {
+                for (int j = targetStart; j < targetEnd; j++) {
+                    if (i == j) {
+                        continue;
+                    }
+                    int overlap = overlapKernel.overlap(reads[i], reads[j], minOverlapLength);
+                    if (overlap >= minOverlapLength) {
+                        buffer.add(i, j, overlap);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Task processing a range of tiles, splits the range in halves until a single tile left.
+         */
+        private class TilesTask extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+
+            private final byte[][] reads;
+            private final ThreadLocal<EdgeBuffer> threadBuffer;
+            private final int tilesPerSide;
+            private final int fromTile;
+            private final int toTile;
+
+            TilesTask(byte[][] reads, ThreadLocal<EdgeBuffer> threadBuffer, int tilesPerSide,
+                      int fromTile, int toTile) {
+                this.reads = reads;
+                this.threadBuffer = threadBuffer;
+                this.tilesPerSide = tilesPerSide;
+                this.fromTile = fromTile;
+                this.toTile = toTile;
+            }
+
+            @Override
+            protected void compute() {
+                if (toTile - fromTile <= 1) {
+                    if (fromTile < toTile) {
+                        processTile(reads, fromTile, tilesPerSide, threadBuffer.get());
+                    }
+                    return;
+                }
+                int middle = (fromTile + toTile) >>> 1;
+                invokeAll(new TilesTask(reads, threadBuffer, tilesPerSide, fromTile, middle),
+                        new TilesTask(reads, threadBuffer, tilesPerSide, middle, toTile));
+            }
+        }
+    }
+
+    /**
+     * Growable buffer of weighted edges kept in primitive arrays.
+     */
+    static class EdgeBuffer {
+        int[] sources = new int[16];
+        int[] targets = new int[16];
+        int[] weights = new int[16];
+        int size;
+
+        void add(int source, int target, int weight) {
+            if (size == sources.length) {
+                sources = Arrays.copyOf(sources, size * 2);
+                targets = Arrays.copyOf(targets, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            sources[size] = source;
+            targets[size] = target;
+            weights[size] = weight;
+            size++;
+        }
+    }
+
+    /**
+     * Encodes reads into byte arrays (one byte per symbol) used by {@link OverlapKernel}.
+     */
+    static byte[][] encodeReads(String[] reads) {
+        byte[][] result = new byte[reads.length][];
+        for (int i = 0; i < reads.length; i++) {
+            result[i] = reads[i].getBytes(StandardCharsets.ISO_8859_1);
+        }
+        return result;
+    }
+
+    /**
+     * Kernel calculating an overlap of byte encoded reads, see
+     * {@link #stringsOverlap(String, String)}. Overlaps shorter than minOverlapLength are not
+     * looked for and reported as 0, with minOverlapLength = 0 the result is exactly the same as
+     * {@link #stringsOverlap(String, String)} returns.
+     */
+    interface OverlapKernel {
+        int overlap(byte[] read1, byte[] read2, int minOverlapLength);
+    }
+
+    /**
+     * Overlap kernel comparing reads one symbol at a time.
+     */
+    static class ScalarOverlapKernel implements OverlapKernel {
+        @Override
+        public int overlap(byte[] read1, byte[] read2, int minOverlapLength) {
+            int lowestOverlap = Math.max(minOverlapLength, 1);
+            for (int overlap = Math.min(read1.length, read2.length); overlap >= lowestOverlap;
+                 overlap--) {
+                int offset = read1.length - overlap;
+                int i = 0;
+                while (i < overlap && read1[offset + i] == read2[i]) {
+                    i++;
+                }
+                if (i == overlap) {
+                    return overlap;
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Overlap kernel comparing reads with {@link Arrays#mismatch(byte[], int, int, byte[], int,
+     * int)}, which HotSpot compiles into SIMD instructions comparing 16-64 bytes at once
+     * (depending on SSE/AVX2/AVX-512 support). It gives the same speed up as the incubating
+     * Vector API without requiring --add-modules jdk.incubator.vector at compile and run time.
+     * Most shifts mismatch within a few symbols, so they are rejected by comparing the first 8
+     * symbols as a single long word before the bulk comparison.
+     */
+    static class VectorizedOverlapKernel implements OverlapKernel {
+        private static final VarHandle LONG_VIEW =
+                MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+        @Override
+        public int overlap(byte[] read1, byte[] read2, int minOverlapLength) {
+            int lowestOverlap = Math.max(minOverlapLength, 1);
+            long read2Head = read2.length >= Long.BYTES ? (long) LONG_VIEW.get(read2, 0) : 0;
+            for (int overlap = Math.min(read1.length, read2.length); overlap >= lowestOverlap;
+                 overlap--) {
+                int offset = read1.length - overlap;
+                if (overlap >= Long.BYTES) {
+                    if ((long) LONG_VIEW.get(read1, offset) != read2Head) {
+                        continue;
+                    }
+                } else if (read1[offset] != read2[0]) {
+                    continue;
+                }
+                if (Arrays.mismatch(read1, offset, read1.length, read2, 0, overlap) < 0) {
+                    return overlap;
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Builds overlap graph comparing all pairs of reads with the given {@link OverlapKernel}.
+     */
+    static class KernelOverlapGraphBuilder implements OverlapGraphBuilder {
+        private final int minOverlapLength;
+        private final OverlapKernel overlapKernel;
+
+        KernelOverlapGraphBuilder(int minOverlapLength, OverlapKernel overlapKernel) {
+            this.minOverlapLength = minOverlapLength;
+            this.overlapKernel = overlapKernel;
+        }
+
+        @Override
+        public List<Vertex>[] buildOverlapGraph(String[] reads) {
+            byte[][] encodedReads = encodeReads(reads);
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            List<Vertex>[] adjacencyList = new List[reads.length];
+            for (int i = 0; i < adjacencyList.length; i++) {
+                adjacencyList[i] = new LinkedList<>();
+            }
+
+            for (int i = 0; i < encodedReads.length; i++) {
+                for (int j = 0; j < encodedReads.length; j++) {
+                    if (i == j) {
+                        continue;
+                    }
+                    int overlap = overlapKernel.overlap(encodedReads[i], encodedReads[j],
+                            minOverlapLength);
+                    if (overlap >= minOverlapLength) {
+                        adjacencyList[i].add(new Vertex(j, overlap));
+                    }
+                }
+            }
+
+            sortAdjacencyList(adjacencyList);
+            return adjacencyList;
+        }
+    }
+
+    /**
+     * Strategy of the reads layout: builds a path through all vertices of the overlap graph
+     * starting at the vertex 0. Every vertex of the path holds an overlap with the previous one.
+     */
+    interface LayoutStrategy {
+        Deque<Vertex> buildLayout(List<Vertex>[] adjacencyList);
+
+        /**
+         * Builds the layout of the graph in the compact form, by default the graph is converted
+         * to the adjacency list.
+         */
+        default Deque<Vertex> buildLayout(CompactOverlapGraph graph) {
+            return buildLayout(graph.toAdjacencyList());
+        }
+    }
+
+    /**
+     * Global greedy layout. All edges of the overlap graph are popped from a max-heap in the
+     * descending order of weights, an edge joins two reads if the source has no successor yet,
+     * the target has no predecessor yet and they belong to different chains (tracked by
+     * union-find), so no cycle is closed prematurely. Remaining chains are concatenated into a
+     * circle which is cut at the vertex 0. Takes O(E log E) time without backtracking.
+     */
+    static class GreedyLayoutStrategy implements LayoutStrategy {
+        @Override
+        public Deque<Vertex> buildLayout(List<Vertex>[] adjacencyList) {
+            int verticesNumber = adjacencyList.length;
+            EdgeBuffer edges = new EdgeBuffer();
+            for (int i = 0; i < verticesNumber; i++) {
+                for (Vertex vertex : adjacencyList[i]) {
+                    edges.add(i, vertex.index, vertex.weight);
+                }
+            }
+
+            int[] successor = new int[verticesNumber];
+            int[] predecessor = new int[verticesNumber];
+            int[] weight = new int[verticesNumber];
+            Arrays.fill(successor, -1);
+            Arrays.fill(predecessor, -1);
+            int[] chains = new int[verticesNumber];
+            for (int i = 0; i < verticesNumber; i++) {
+                chains[i] = i;
+            }
+
+            EdgeHeap heap = new EdgeHeap(edges);
+            int joins = 0;
+            while (!heap.isEmpty() && joins < verticesNumber - 1) {
+                int edge = heap.pop();
+                int source = edges.sources[edge];
+                int target = edges.targets[edge];
+                if (successor[source] >= 0 || predecessor[target] >= 0) {
+                    continue;
+                }
+                int sourceChain = findChain(chains, source);
+                int targetChain = findChain(chains, target);
+                if (sourceChain == targetChain) {
+                    continue;
+                }
+                chains[sourceChain] = targetChain;
+                successor[source] = target;
+                predecessor[target] = source;
+                weight[target] = edges.weights[edge];
+                joins++;
+            }
+
+            // Concatenate chains into a circle and cut it at the vertex 0.
+            int[] circle = new int[verticesNumber];
+            int length = 0;
+            for (int head = 0; head < verticesNumber; head++) {
+                if (predecessor[head] < 0) {
+                    for (int v = head; v >= 0; v = successor[v]) {
+                        circle[length++] = v;
+                    }
+                }
+            }
+            int start = 0;
+            while (circle[start] != START_VERTEX.index) {
+                start++;
+            }
+
+            Deque<Vertex> result = new LinkedList<>();
+            result.add(START_VERTEX);
+            for (int i = 1; i < verticesNumber; i++) {
+                int previous = circle[(start + i - 1) % verticesNumber];
+                int current = circle[(start + i) % verticesNumber];
+                int overlap = predecessor[current] == previous
+                        ? weight[current] : findWeight(adjacencyList[previous], current);
+                result.add(new Vertex(current, overlap));
+            }
+            return result;
+        }
+
+        private static int findChain(int[] chains, int vertex) {
+            while (chains[vertex] != vertex) {
+                chains[vertex] = chains[chains[vertex]];
+                vertex = chains[vertex];
+            }
+            return vertex;
+        }
+
+        private static int findWeight(List<Vertex> adjacentVertices, int index) {
+            for (Vertex vertex : adjacentVertices) {
+                if (vertex.index == index) {
+                    return vertex.weight;
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Binary max-heap of edge numbers of {@link EdgeBuffer} ordered by weight, edges with equal
+     * weights are ordered by source and target indices to make the layout deterministic.
+     */
+    static class EdgeHeap {
+        private final EdgeBuffer edges;
+        private final int[] heap;
+        private int size;
+
+        EdgeHeap(EdgeBuffer edges) {
+            this.edges = edges;
+            this.heap = new int[edges.size];
+            for (int i = 0; i < edges.size; i++) {
+                heap[i] = i;
+            }
+            this.size = edges.size;
+            for (int i = size / 2 - 1; i >= 0; i--) {
+                siftDown(i);
+            }
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int pop() {
+            int top = heap[0];
+            heap[0] = heap[--size];
+            siftDown(0);
+            return top;
+        }
+
+        private void siftDown(int position) {
+            while (true) {
+                int largest = position;
+                int left = 2 * position + 1;
+                int right = left + 1;
+                if (left < size && greater(heap[left], heap[largest])) {
+                    largest = left;
+                }
+                if (right < size && greater(heap[right], heap[largest])) {
+                    largest = right;
+                }
+                if (largest == position) {
+                    return;
+                }
+                int swap = heap[position];
+                heap[position] = heap[largest];
+                heap[largest] = swap;
+                position = largest;
+            }
+        }
+
+        private boolean greater(int edge1, int edge2) {
+            if (edges.weights[edge1] != edges.weights[edge2]) {
+                return edges.weights[edge1] > edges.weights[edge2];
+            }
+            if (edges.sources[edge1] != edges.sources[edge2]) {
+                return edges.sources[edge1] < edges.sources[edge2];
+            }
+            return edges.targets[edge1] < edges.targets[edge2];
+        }
+    }
+
+    /**
+     * Builds overlap graph with the given builder and removes transitively implied edges from it,
+     * as it is done in Myers' string graph. An edge v -> x is implied by the path v -> w -> x if
+     * the shift of x relative to v (length of v minus the overlap) is equal to the sum of shifts
+     * along the path, i.e. x is placed at the same position by both of them.
+     * <p>
+     * Adjacency lists are sorted by the overlap length descending, so for the source vertex the
+     * shifts go in the ascending order and scanning successors of w stops as soon as the sum of
+     * shifts exceeds the longest shift of v. This way every vertex is processed in time close to
+     * linear in the number of edges around it.
+     * </p>
+     */
+    static class TransitiveReductionOverlapGraphBuilder implements OverlapGraphBuilder {
+        private final OverlapGraphBuilder overlapGraphBuilder;
+        private long removedEdges;
+
+        TransitiveReductionOverlapGraphBuilder(OverlapGraphBuilder overlapGraphBuilder) {
+            this.overlapGraphBuilder = overlapGraphBuilder;
+        }
+
+        @Override
+        public void setStatistics(Statistics statistics) {
+            overlapGraphBuilder.setStatistics(statistics);
+        }
+
+        @Override
+        public List<Vertex>[] buildOverlapGraph(String[] reads) {
+            List<Vertex>[] adjacencyList = overlapGraphBuilder.buildOverlapGraph(reads);
+            this.removedEdges = reduce(reads, adjacencyList);
+            return adjacencyList;
+        }
+
+        /**
+         * Removes transitively implied edges from the graph.
+         *
+         * @return number of removed edges
+         */
+        static long reduce(String[] reads, List<Vertex>[] adjacencyList) {
+            int verticesNumber = adjacencyList.length;
+            // Expected shift of every successor of the current vertex, -1 for other vertices.
+            int[] successorShift = new int[verticesNumber];
+            Arrays.fill(successorShift, -1);
+            boolean[] reduced = new boolean[verticesNumber];
+            long removed = 0;
+
+            for (int v = 0; v < verticesNumber; v++) {
+                int longestShift = 0;
+                for (Vertex x : adjacencyList[v]) {
+                    int shift = reads[v].length() - x.weight;
+                    successorShift[x.index] = shift;
+                    longestShift = Math.max(longestShift, shift);
+                }
+
+                for (Vertex w : adjacencyList[v]) {
+                    int shiftToW = reads[v].length() - w.weight;
+                    for (Vertex x : adjacencyList[w.index]) {
+                        int shift = shiftToW + reads[w.index].length() - x.weight;
+                        if (shift > longestShift) {
+                            break;
+                        }
+                        if (x.index != v && successorShift[x.index] == shift) {
+                            reduced[x.index] = true;
+                        }
+                    }
+                }
+
+                for (Iterator<Vertex> iterator = adjacencyList[v].iterator(); iterator.hasNext(); ) {
+                    Vertex x = iterator.next();
+                    successorShift[x.index] = -1;
+                    if (reduced[x.index]) {
+                        reduced[x.index] = false;
+                        iterator.remove();
+                        removed++;
+                    }
+                }
+            }
+            return removed;
+        }
+
+        /**
+         * Returns the number of edges removed while building the last graph.
+         */
+        long getRemovedEdges() {
+            return removedEdges;
+        }
+    }
+
+    /**
+     * Overlap graph in compressed sparse row form: edges of the vertex v are stored at positions
+     * offsets[v]..offsets[v + 1] - 1 of the targets and weights arrays. An edge takes 6 bytes
+     * instead of a {@link Vertex} object and a linked list node. Weights are kept in shorts when
+     * all of them fit, otherwise in ints (8 bytes per edge).
+     * <p>
+     * The graph keeps primitive heap arrays, only views of a memory mapped
+     * {@link OverlapGraphFile} are backed by buffers, see {@link MappedCompactOverlapGraph}.
+     * </p>
+     */
+    static class CompactOverlapGraph {
+        private final int[] offsets;
+        private final int[] targets;
+        private final short[] shortWeights;
+        private final int[] intWeights;
+
+        CompactOverlapGraph(int[] offsets, int[] targets, short[] weights) {
+            this(offsets, targets, weights, null);
+        }
+
+        CompactOverlapGraph(int[] offsets, int[] targets, int[] weights) {
+            this(offsets, targets, null, weights);
+        }
+
+        /**
+         * Creates the graph over the arrays, exactly one of the weight arrays is not null. The
+         * mapped view passes no arrays at all.
+         */
+        private CompactOverlapGraph(int[] offsets, int[] targets, short[] shortWeights,
+                                    int[] intWeights) {
+            this.offsets = offsets;
+            this.targets = targets;
+            this.shortWeights = shortWeights;
+            this.intWeights = intWeights;
+        }
+
+        /**
+         * Creates compact graph from the adjacency list keeping the order of edges.
+         */
+        static CompactOverlapGraph of(List<Vertex>[] adjacencyList) {
+            int[] offsets = new int[adjacencyList.length + 1];
+            int maxWeight = 0;
+            for (int i = 0; i < adjacencyList.length; i++) {
+                offsets[i + 1] = offsets[i] + adjacencyList[i].size();
+                for (Vertex vertex : adjacencyList[i]) {
+                    maxWeight = Math.max(maxWeight, vertex.weight);
+                }
+            }
+            int[] targets = new int[offsets[adjacencyList.length]];
+            short[] shortWeights = maxWeight <= Short.MAX_VALUE ? new short[targets.length] : null;
+            int[] intWeights = shortWeights == null ? new int[targets.length] : null;
+            for (int i = 0; i < adjacencyList.length; i++) {
+                int position = offsets[i];
+                for (Vertex vertex : adjacencyList[i]) {
+                    targets[position] = vertex.index;
+                    if (shortWeights != null) {
+                        shortWeights[position] = (short) vertex.weight;
+                    } else {
+                        intWeights[position] = vertex.weight;
+                    }
+                    position++;
+                }
+            }
+            return shortWeights != null
+                    ? new CompactOverlapGraph(offsets, targets, shortWeights)
+                    : new CompactOverlapGraph(offsets, targets, intWeights);
+        }
+
+        /**
+         * Creates compact graph from the edges, edges of every vertex are sorted by weight in
+         * descending order and then by target index.
+         */
+        static CompactOverlapGraph of(int verticesNumber, EdgeBuffer edges) {
+            int[] offsets = new int[verticesNumber + 1];
+            for (int e = 0; e < edges.size; e++) {
+                offsets[edges.sources[e] + 1]++;
+            }
+            for (int i = 0; i < verticesNumber; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+
+            // Sort key: inverted weight in the high half, target index in the low half.
+            long[] keys = new long[edges.size];
+            int[] position = Arrays.copyOf(offsets, verticesNumber);
+            int maxWeight = 0;
+            for (int e = 0; e < edges.size; e++) {
+                keys[position[edges.sources[e]]++] =
+                        ((long) (Integer.MAX_VALUE - edges.weights[e]) << 32) | edges.targets[e];
+                maxWeight = Math.max(maxWeight, edges.weights[e]);
+            }
+            for (int i = 0; i < verticesNumber; i++) {
+                Arrays.sort(keys, offsets[i], offsets[i + 1]);
+            }
+            int[] targets = new int[edges.size];
+            short[] shortWeights = maxWeight <= Short.MAX_VALUE ? new short[edges.size] : null;
+            int[] intWeights = shortWeights == null ? new int[edges.size] : null;
+            for (int e = 0; e < keys.length; e++) {
+                targets[e] = (int) keys[e];
+                int weight = Integer.MAX_VALUE - (int) (keys[e] >>> 32);
+                if (shortWeights != null) {
+                    shortWeights[e] = (short) weight;
+                } else {
+                    intWeights[e] = weight;
+                }
+            }
+            return shortWeights != null
+                    ? new CompactOverlapGraph(offsets, targets, shortWeights)
+                    : new CompactOverlapGraph(offsets, targets, intWeights);
+        }
+
+        int getVerticesNumber() {
+            return offsets.length - 1;
+        }
+
+        int getEdgesNumber() {
+            return targets.length;
+        }
+
+        /**
+         * Returns the position of the first edge of the vertex, edges of the vertex v end at
+         * getOffset(v + 1).
+         */
+        int getOffset(int vertex) {
+            return offsets[vertex];
+        }
+
+        int getTarget(int edge) {
+            return targets[edge];
+        }
+
+        int getWeight(int edge) {
+            return shortWeights != null ? shortWeights[edge] : intWeights[edge];
+        }
+
+        /**
+         * Returns true if the weights are stored in shorts.
+         */
+        boolean hasShortWeights() {
+            return shortWeights != null;
+        }
+
+        /**
+         * Converts the graph to the adjacency list form.
+         */
+        List<Vertex>[] toAdjacencyList() {
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            List<Vertex>[] adjacencyList = new List[getVerticesNumber()];
+            for (int i = 0; i < adjacencyList.length; i++) {
+                adjacencyList[i] = new LinkedList<>();
+                for (int e = getOffset(i); e < getOffset(i + 1); e++) {
+                    adjacencyList[i].add(new Vertex(getTarget(e), getWeight(e)));
+                }
+            }
+            return adjacencyList;
+        }
+    }
+
+    /**
+     * View of the {@link CompactOverlapGraph} arrays in a memory mapped {@link OverlapGraphFile},
+     * the arrays are read through buffers and are not copied into the heap. Every array is split
+     * into segments of 2^segmentShift elements, so it may take more than 2 GB of the file.
+     */
+    static class MappedCompactOverlapGraph extends CompactOverlapGraph {
+        private final int verticesNumber;
+        private final int edgesNumber;
+        private final int segmentShift;
+        private final int segmentMask;
+        private final IntBuffer[] offsets;
+        private final IntBuffer[] targets;
+        private final ShortBuffer[] shortWeights;
+        private final IntBuffer[] intWeights;
+
+        /**
+         * Creates the graph over the segments, exactly one of the weight arrays is not null.
+         */
+        MappedCompactOverlapGraph(int verticesNumber, int edgesNumber, int segmentShift,
+                                  IntBuffer[] offsets, IntBuffer[] targets,
+                                  ShortBuffer[] shortWeights, IntBuffer[] intWeights) {
+            super(null, null, null, null);
+            this.verticesNumber = verticesNumber;
+            this.edgesNumber = edgesNumber;
+            this.segmentShift = segmentShift;
+            this.segmentMask = (1 << segmentShift) - 1;
+            this.offsets = offsets;
+            this.targets = targets;
+            this.shortWeights = shortWeights;
+            this.intWeights = intWeights;
+        }
+
+        @Override
+        int getVerticesNumber() {
+            return verticesNumber;
+        }
+
+        @Override
+        int getEdgesNumber() {
+            return edgesNumber;
+        }
+
+        @Override
+        int getOffset(int vertex) {
+            return offsets[vertex >>> segmentShift].get(vertex & segmentMask);
+        }
+
+        @Override
+        int getTarget(int edge) {
+            return targets[edge >>> segmentShift].get(edge & segmentMask);
+        }
+
+        @Override
+        int getWeight(int edge) {
+            return shortWeights != null
+                    ? shortWeights[edge >>> segmentShift].get(edge & segmentMask)
+                    : intWeights[edge >>> segmentShift].get(edge & segmentMask);
+        }
+
+        @Override
+        boolean hasShortWeights() {
+            return shortWeights != null;
+        }
+    }
+
+    /**
+     * Reads stored as slices of byte buffers. Buffers are usually memory mapped input files, so
+     * reads are not copied into the heap.
+     */
+    static class ReadStore {
+        private final List<ByteBuffer> buffers = new ArrayList<>();
+        private int[] bufferOfRead = new int[16];
+        private int[] offsets = new int[16];
+        private int[] lengths = new int[16];
+        private int size;
+
+        int addBuffer(ByteBuffer buffer) {
+            buffers.add(buffer);
+            return buffers.size() - 1;
+        }
+
+        void addRead(int buffer, int offset, int length) {
+            if (size == offsets.length) {
+                bufferOfRead = Arrays.copyOf(bufferOfRead, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+            }
+            bufferOfRead[size] = buffer;
+            offsets[size] = offset;
+            lengths[size] = length;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int length(int read) {
+            return lengths[read];
+        }
+
+        byte byteAt(int read, int position) {
+            return buffers.get(bufferOfRead[read]).get(offsets[read] + position);
+        }
+
+        byte[] getBytes(int read) {
+            byte[] result = new byte[lengths[read]];
+            ByteBuffer buffer = buffers.get(bufferOfRead[read]).duplicate();
+            buffer.position(offsets[read]);
+            buffer.get(result);
+            return result;
+        }
+
+        String getRead(int read) {
+            return new String(getBytes(read), StandardCharsets.ISO_8859_1);
+        }
+
+        /**
+         * Returns distinct reads as strings in the order of the first occurrence. Reads are
+         * compared as byte slices in an open addressing table of read indices, so a string is
+         * created only for the first copy of a read.
+         */
+        String[] distinctReads() {
+            int[] table = new int[Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1];
+            Arrays.fill(table, -1);
+            int mask = table.length - 1;
+            List<String> result = new ArrayList<>();
+            for (int read = 0; read < size; read++) {
+                int slot = hash(read) & mask;
+                while (table[slot] >= 0 && !sameReads(table[slot], read)) {
+                    slot = (slot + 1) & mask;
+                }
+                if (table[slot] < 0) {
+                    table[slot] = read;
+                    result.add(getRead(read));
+                }
+            }
+            return result.toArray(new String[result.size()]);
+        }
+
+        private int hash(int read) {
+            ByteBuffer buffer = buffers.get(bufferOfRead[read]);
+            int hash = lengths[read];
+            for (int i = offsets[read], end = offsets[read] + lengths[read]; i < end; i++) {
+                hash = 31 * hash + buffer.get(i);
+            }
+            return hash ^ (hash >>> 16);
+        }
+
+        private boolean sameReads(int read1, int read2) {
+            if (lengths[read1] != lengths[read2]) {
+                return false;
+            }
+            for (int i = 0; i < lengths[read1]; i++) {
+                if (byteAt(read1, i) != byteAt(read2, i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Reader of FASTA, FASTQ and plain (one read per line) files, record formats may be mixed,
+     * FASTA sequence lasts until the next line starting with '>' or '@'.
+     * Files are memory mapped by segments of at most {@link #MAX_SEGMENT_SIZE} bytes starting at
+     * record boundaries. Sequences written on a single line are referenced in the mapped segment,
+     * only multi-line FASTA sequences are copied.
+     */
+    static class MappedReadsReader {
+        private static final int MAX_SEGMENT_SIZE = Integer.MAX_VALUE - 8;
+
+        private final int maxSegmentSize;
+
+        MappedReadsReader() {
+            this(MAX_SEGMENT_SIZE);
+        }
+
+        MappedReadsReader(int maxSegmentSize) {
+            this.maxSegmentSize = maxSegmentSize;
+        }
+
+        ReadStore read(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                return read(channel);
+            }
+        }
+
+        /**
+         * Reads standard input, it is memory mapped if redirected from a file and read into the
+         * heap otherwise.
+         */
+        ReadStore readStandardInput() throws IOException {
+            FileChannel channel = new FileInputStream(FileDescriptor.in).getChannel();
+            if (channel.size() > 0) {
+                try {
+                    return read(channel);
+                } catch (IOException e) {
+                    // Not a regular file, read it as a stream.
+                }
+            }
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] chunk = new byte[1 << 16];
+            int length;
+            while ((length = System.in.read(chunk)) > 0) {
+                content.write(chunk, 0, length);
+            }
+            ReadStore store = new ReadStore();
+            ByteBuffer buffer = ByteBuffer.wrap(content.toByteArray());
+            parse(buffer, store.addBuffer(buffer), true, store);
+            return store;
+        }
+
+        ReadStore read(FileChannel channel) throws IOException {
+            ReadStore store = new ReadStore();
+            long fileSize = channel.size();
+            long position = 0;
+            while (position < fileSize) {
+                long segmentSize = Math.min(maxSegmentSize, fileSize - position);
+                boolean lastSegment = position + segmentSize == fileSize;
+                ByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, position, segmentSize);
+                int parsed = parse(segment, store.addBuffer(segment), lastSegment, store);
+                if (parsed == 0 && !lastSegment) {
+                    throw new IOException("Record at " + position + " exceeds segment size");
+                }
+                position += parsed;
+            }
+            return store;
+        }
+
+        /**
+         * Parses complete records of the buffer. Incomplete record at the end of the last buffer
+         * (e.g. FASTQ record without quality line) is skipped.
+         *
+         * @return position of the first incomplete record or the buffer size
+         */
+        int parse(ByteBuffer buffer, int bufferIndex, boolean lastBuffer, ReadStore store) {
+            int limit = buffer.limit();
+            int position = 0;
+            while (true) {
+                while (position < limit && isLineBreak(buffer.get(position))) {
+                    position++;
+                }
+                if (position >= limit) {
+                    return limit;
+                }
+
+                int recordStart = position;
+                byte first = buffer.get(position);
+                if (first == '>') {
+                    int headerEnd = lineEnd(buffer, position, lastBuffer);
+                    if (headerEnd < 0) {
+                        return lastBuffer ? limit : recordStart;
+                    }
+                    position = nextLine(buffer, headerEnd);
+                    int sequenceStart = position;
+                    int sequenceEnd = position;
+                    int lines = 0;
+                    while (position < limit && !isRecordStart(buffer.get(position))) {
+                        int end = lineEnd(buffer, position, lastBuffer);
+                        if (end < 0) {
+                            return lastBuffer ? limit : recordStart;
+                        }
+                        if (end > position) {
+                            if (lines == 0) {
+                                sequenceStart = position;
+                            }
+                            sequenceEnd = end;
+                            lines++;
+                        }
+                        position = nextLine(buffer, end);
+                    }
+                    if (position >= limit && !lastBuffer) {
+                        return recordStart;
+                    }
+                    if (lines == 1) {
+                        store.addRead(bufferIndex, sequenceStart, sequenceEnd - sequenceStart);
+                    } else if (lines > 1) {
+                        addJoinedLines(buffer, sequenceStart, position, store);
+                    }
+                } else if (first == '@') {
+                    int[] ends = new int[4];
+                    int linePosition = position;
+                    for (int line = 0; line < ends.length; line++) {
+                        ends[line] = linePosition < limit
+                                ? lineEnd(buffer, linePosition, lastBuffer) : -1;
+                        if (ends[line] < 0) {
+                            return lastBuffer ? limit : recordStart;
+                        }
+                        linePosition = nextLine(buffer, ends[line]);
+                    }
+                    int sequenceStart = nextLine(buffer, ends[0]);
+                    store.addRead(bufferIndex, sequenceStart, ends[1] - sequenceStart);
+                    position = linePosition;
+                } else {
+                    int end = lineEnd(buffer, position, lastBuffer);
+                    if (end < 0) {
+                        return lastBuffer ? limit : recordStart;
+                    }
+                    store.addRead(bufferIndex, position, end - position);
+                    position = nextLine(buffer, end);
+                }
+            }
+        }
+
+        private static void addJoinedLines(ByteBuffer buffer, int from, int to, ReadStore store) {
+            ByteArrayOutputStream sequence = new ByteArrayOutputStream(to - from);
+            for (int i = from; i < to; i++) {
+                byte symbol = buffer.get(i);
+                if (!isLineBreak(symbol)) {
+                    sequence.write(symbol);
+                }
+            }
+            byte[] bytes = sequence.toByteArray();
+            store.addRead(store.addBuffer(ByteBuffer.wrap(bytes)), 0, bytes.length);
+        }
+
+        /**
+         * Returns the end of the line content (without line break symbols) or -1 if the line is
+         * not terminated within the buffer.
+         */
+        private static int lineEnd(ByteBuffer buffer, int lineStart, boolean lastBuffer) {
+            int limit = buffer.limit();
+            int position = lineStart;
+            while (position < limit && buffer.get(position) != '\n') {
+                position++;
+            }
+            if (position == limit && !lastBuffer) {
+                return -1;
+            }
+            if (position > lineStart && buffer.get(position - 1) == '\r') {
+                position--;
+            }
+            return position;
+        }
+
+        private static int nextLine(ByteBuffer buffer, int lineEnd) {
+            int limit = buffer.limit();
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            return Math.min(lineEnd + 1, limit);
+        }
+
+        private static boolean isRecordStart(byte symbol) {
+            return symbol == '>' || symbol == '@';
+        }
+
+        private static boolean isLineBreak(byte symbol) {
+            return symbol == '\n' || symbol == '\r';
+        }
+    }
+
+    /**
+     * Binary file of the overlap graph in the {@link CompactOverlapGraph} form. The header holds
+     * a checksum of the reads, the minimum overlap length and a fingerprint of the builder
+     * configuration id, so a graph saved for another set (or order) of reads or by another
+     * builder is rejected.
+     * File layout (little endian): magic, version, checksum (long), minimum overlap length,
+     * configuration fingerprint (long), vertices number, edges number, weight size in bytes
+     * (2 or 4), offsets, targets, weights.
+     * <p>
+     * The loaded graph is a view of the mapped file, only the header and the CSR structure
+     * (offsets order and targets range) are checked. Arrays are written and mapped by segments,
+     * so the file may exceed 2 GB. The file is replaced atomically on save,
+     * so graphs mapped before keep their content.
+     * </p>
+     */
+    static class OverlapGraphFile {
+        private static final int MAGIC = 0x4F564C47;
+        private static final int VERSION = 3;
+        private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 8 + 4 + 4 + 4;
+        // Arrays are mapped by segments of 2^28 elements, at most 1 GB each.
+        private static final int SEGMENT_SHIFT = 28;
+
+        /**
+         * Calculates the checksum of the reads, it depends on the order of the reads.
+         */
+        static long checksum(String[] reads) {
+            CRC32C crc = new CRC32C();
+            ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+            for (String read : reads) {
+                length.clear();
+                length.putInt(read.length());
+                crc.update(length.array());
+                crc.update(read.getBytes(StandardCharsets.ISO_8859_1));
+            }
+            return ((long) reads.length << 32) | crc.getValue();
+        }
+
+        /**
+         * Calculates the fingerprint of the builder configuration id.
+         */
+        static long fingerprint(String configurationId) {
+            byte[] bytes = configurationId.getBytes(StandardCharsets.UTF_8);
+            CRC32C crc = new CRC32C();
+            crc.update(bytes);
+            return ((long) bytes.length << 32) | crc.getValue();
+        }
+
+        static void save(Path path, CompactOverlapGraph graph, long checksum,
+                         int minOverlapLength, String configurationId) throws IOException {
+            save(path, graph, checksum, minOverlapLength, configurationId, SEGMENT_SHIFT);
+        }
+
+        /**
+         * Saves the graph mapping every array by segments of 2^segmentShift elements, the file
+         * layout does not depend on the segment size.
+         */
+        static void save(Path path, CompactOverlapGraph graph, long checksum,
+                         int minOverlapLength, String configurationId, int segmentShift)
+                throws IOException {
+            int verticesNumber = graph.getVerticesNumber();
+            int edgesNumber = graph.getEdgesNumber();
+            int weightSize = graph.hasShortWeights() ? Short.BYTES : Integer.BYTES;
+            long targetsPosition = HEADER_SIZE + (verticesNumber + 1L) * Integer.BYTES;
+            long weightsPosition = targetsPosition + (long) edgesNumber * Integer.BYTES;
+            Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                MappedByteBuffer header =
+                        channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+                header.order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).putLong(checksum).putInt(minOverlapLength)
+                        .putLong(fingerprint(configurationId)).putInt(verticesNumber)
+                        .putInt(edgesNumber).putInt(weightSize);
+                header.force();
+                write(channel, HEADER_SIZE, verticesNumber + 1, Integer.BYTES, graph::getOffset,
+                        segmentShift);
+                write(channel, targetsPosition, edgesNumber, Integer.BYTES, graph::getTarget,
+                        segmentShift);
+                write(channel, weightsPosition, edgesNumber, weightSize, graph::getWeight,
+                        segmentShift);
+            } catch (IOException e) {
+                Files.deleteIfExists(temporaryPath);
+                throw e;
+            }
+            Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        /**
+         * Writes count values of the given size (2 or 4 bytes) from the position of the file.
+         */
+        private static void write(FileChannel channel, long position, int count, int size,
+                                  IntUnaryOperator values, int segmentShift) throws IOException {
+            int index = 0;
+            for (MappedByteBuffer segment : mapSegments(channel, FileChannel.MapMode.READ_WRITE,
+                    position, count, size, segmentShift)) {
+                while (segment.hasRemaining()) {
+                    if (size == Short.BYTES) {
+                        segment.putShort((short) values.applyAsInt(index++));
+                    } else {
+                        segment.putInt(values.applyAsInt(index++));
+                    }
+                }
+                segment.force();
+            }
+        }
+
+        /**
+         * Maps the graph saved for the reads with the given checksum by the builder with the
+         * given configuration.
+         *
+         * @throws IOException if the file is not an overlap graph file, it is corrupted or it was
+         *                     saved for other reads or by another builder
+         */
+        static CompactOverlapGraph load(Path path, long checksum, int minOverlapLength,
+                                        String configurationId) throws IOException {
+            return load(path, checksum, minOverlapLength, configurationId, SEGMENT_SHIFT);
+        }
+
+        /**
+         * Maps the graph by segments of 2^segmentShift elements, see
+         * {@link #load(Path, long, int, String)}.
+         */
+        static CompactOverlapGraph load(Path path, long checksum, int minOverlapLength,
+                                        String configurationId, int segmentShift)
+                throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long fileSize = channel.size();
+                if (fileSize < HEADER_SIZE) {
+                    throw new IOException(path + " is not an overlap graph file");
+                }
+                MappedByteBuffer header =
+                        channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+                header.order(ByteOrder.LITTLE_ENDIAN);
+                if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                    throw new IOException(path + " is not an overlap graph file");
+                }
+                if (header.getLong() != checksum) {
+                    throw new IOException(path + " was saved for other reads");
+                }
+                if (header.getInt() != minOverlapLength
+                        || header.getLong() != fingerprint(configurationId)) {
+                    throw new IOException(path + " was saved by another builder");
+                }
+
+                // Counts are checked against the file size before any view is created.
+                int verticesNumber = header.getInt();
+                int edgesNumber = header.getInt();
+                int weightSize = header.getInt();
+                long targetsPosition = HEADER_SIZE + (verticesNumber + 1L) * Integer.BYTES;
+                long weightsPosition = targetsPosition + (long) edgesNumber * Integer.BYTES;
+                if (verticesNumber != (int) (checksum >>> 32) || edgesNumber < 0
+                        || (weightSize != Short.BYTES && weightSize != Integer.BYTES)
+                        || fileSize != weightsPosition + (long) edgesNumber * weightSize) {
+                    throw new IOException(path + " is corrupted");
+                }
+                FileChannel.MapMode mode = FileChannel.MapMode.READ_ONLY;
+                IntBuffer[] offsets = intViews(mapSegments(channel, mode, HEADER_SIZE,
+                        verticesNumber + 1, Integer.BYTES, segmentShift));
+                IntBuffer[] targets = intViews(mapSegments(channel, mode, targetsPosition,
+                        edgesNumber, Integer.BYTES, segmentShift));
+                MappedByteBuffer[] weights = mapSegments(channel, mode, weightsPosition,
+                        edgesNumber, weightSize, segmentShift);
+                CompactOverlapGraph graph = weightSize == Short.BYTES
+                        ? new MappedCompactOverlapGraph(verticesNumber, edgesNumber, segmentShift,
+                        offsets, targets, shortViews(weights), null)
+                        : new MappedCompactOverlapGraph(verticesNumber, edgesNumber, segmentShift,
+                        offsets, targets, null, intViews(weights));
+                checkStructure(path, graph);
+                return graph;
+            }
+        }
+
+        /**
+         * Maps count values of the given size from the position of the file by segments of
+         * 2^segmentShift values, so no segment exceeds the 2 GB limit of a mapping.
+         */
+        private static MappedByteBuffer[] mapSegments(FileChannel channel,
+                                                      FileChannel.MapMode mode, long position,
+                                                      int count, int size, int segmentShift)
+                throws IOException {
+            long segmentLength = 1L << segmentShift;
+            MappedByteBuffer[] result =
+                    new MappedByteBuffer[(int) ((count + segmentLength - 1) >>> segmentShift)];
+            for (int i = 0; i < result.length; i++) {
+                long first = i * segmentLength;
+                long length = Math.min(segmentLength, count - first);
+                result[i] = channel.map(mode, position + first * size, length * size);
+                result[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            return result;
+        }
+
+        private static IntBuffer[] intViews(MappedByteBuffer[] segments) {
+            IntBuffer[] result = new IntBuffer[segments.length];
+            for (int i = 0; i < segments.length; i++) {
+                result[i] = segments[i].asIntBuffer();
+            }
+            return result;
+        }
+
+        private static ShortBuffer[] shortViews(MappedByteBuffer[] segments) {
+            ShortBuffer[] result = new ShortBuffer[segments.length];
+            for (int i = 0; i < segments.length; i++) {
+                result[i] = segments[i].asShortBuffer();
+            }
+            return result;
+        }
+
+        private static void checkStructure(Path path, CompactOverlapGraph graph)
+                throws IOException {
+            int verticesNumber = graph.getVerticesNumber();
+            boolean valid = graph.getOffset(0) == 0
+                    && graph.getOffset(verticesNumber) == graph.getEdgesNumber();
+            for (int v = 0; valid && v < verticesNumber; v++) {
+                valid = graph.getOffset(v) <= graph.getOffset(v + 1);
+            }
+            for (int e = 0; valid && e < graph.getEdgesNumber(); e++) {
+                valid = graph.getTarget(e) >= 0 && graph.getTarget(e) < verticesNumber;
+            }
+            if (!valid) {
+                throw new IOException(path + " is corrupted");
+            }
+        }
+    }
+
+    /**
+     * Overlap graph builder reusing the graph saved to a file. If the file is missing or it was
+     * saved for other reads, with another minimum overlap length or by a builder with another
+     * configuration id, the graph is built by the given builder and saved, a graph which cannot
+     * be saved is returned without caching. The compact graph is returned as a view of the mapped
+     * file without copying it into the heap.
+     */
+    static class CachedOverlapGraphBuilder implements OverlapGraphBuilder {
+        private final Path path;
+        private final int minOverlapLength;
+        private final String configurationId;
+        private final OverlapGraphBuilder overlapGraphBuilder;
+        private boolean loaded;
+
+        /**
+         * @param minOverlapLength minimum overlap length of the builder
+         * @param configurationId  id of the builder and its other parameters, graphs saved with
+         *                         another id are rebuilt
+         */
+        CachedOverlapGraphBuilder(Path path, int minOverlapLength, String configurationId,
+                                  OverlapGraphBuilder overlapGraphBuilder) {
+            this.path = path;
+            this.minOverlapLength = minOverlapLength;
+            this.configurationId = configurationId;
+            this.overlapGraphBuilder = overlapGraphBuilder;
+        }
+
+        @Override
+        public void setStatistics(Statistics statistics) {
+            overlapGraphBuilder.setStatistics(statistics);
+        }
+
+        @Override
+        public List<Vertex>[] buildOverlapGraph(String[] reads) {
+            return buildCompactOverlapGraph(reads).toAdjacencyList();
+        }
+
+        @Override
+        public CompactOverlapGraph buildCompactOverlapGraph(String[] reads) {
+            long checksum = OverlapGraphFile.checksum(reads);
+            if (Files.exists(path)) {
+                try {
+                    CompactOverlapGraph graph = OverlapGraphFile.load(path, checksum,
+                            minOverlapLength, configurationId);
+                    loaded = true;
+                    return graph;
+                } catch (IOException e) {
+                    // Stale or broken file, it is replaced below.
+                }
+            }
+
+            loaded = false;
+            CompactOverlapGraph graph = overlapGraphBuilder.buildCompactOverlapGraph(reads);
+            try {
+                OverlapGraphFile.save(path, graph, checksum, minOverlapLength, configurationId);
+            } catch (IOException e) {
+                // The graph is not cached, it is built again next time.
+            }
+            return graph;
+        }
+
+        /**
+         * Returns true if the last graph was loaded from the file.
+         */
+        boolean isLoaded() {
+            return loaded;
+        }
+    }
+
+    /**
+     * Open addressing hash table from Karp-Rabin fingerprints to read indices without boxing.
+     * Reads with the same fingerprint are chained through the next array indexed by read.
+     * The table grows when more keys or reads are put than expected.
+     */
+    static class FingerprintIndex {
+        static final long BASE = 0x9E3779B97F4A7C15L | 1;
+        private static final long EMPTY = 0;
+
+        private long[] keys;
+        private int[] heads;
+        private int[] next;
+        private int mask;
+        private int keysNumber;
+        private int zeroKeyHead = -1;
+
+        FingerprintIndex(int expectedKeys, int readsNumber) {
+            int capacity = Integer.highestOneBit(Math.max(expectedKeys, 1) * 2 - 1) << 1;
+            this.keys = new long[capacity];
+            this.heads = new int[capacity];
+            this.next = new int[readsNumber];
+            this.mask = capacity - 1;
+        }
+
+        /**
+         * Polynomial fingerprint of the substring, calculated modulo 2^64.
+         */
+        static long fingerprint(CharSequence string, int from, int length) {
+            long result = 0;
+            for (int i = from; i < from + length; i++) {
+                result = result * BASE + string.charAt(i);
+            }
+            return result;
+        }
+
+        /**
+         * Shifts fingerprint of the window by one symbol.
+         *
+         * @param highestPower BASE^(window length - 1)
+         */
+        static long roll(long fingerprint, char removed, char added, long highestPower) {
+            return (fingerprint - removed * highestPower) * BASE + added;
+        }
+
+        static long power(int exponent) {
+            long result = 1;
+            for (int i = 0; i < exponent; i++) {
+                result *= BASE;
+            }
+            return result;
+        }
+
+        void put(long key, int read) {
+            if (read >= next.length) {
+                next = Arrays.copyOf(next, Math.max(read + 1, next.length * 2));
+            }
+            if (key == EMPTY) {
+                next[read] = zeroKeyHead;
+                zeroKeyHead = read;
+                return;
+            }
+            int slot = slot(key);
+            if (keys[slot] == EMPTY) {
+                if (2 * (keysNumber + 1) > keys.length) {
+                    resize();
+                    slot = slot(key);
+                }
+                keys[slot] = key;
+                heads[slot] = -1;
+                keysNumber++;
+            }
+            next[read] = heads[slot];
+            heads[slot] = read;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldHeads = heads;
+            keys = new long[oldKeys.length * 2];
+            heads = new int[keys.length];
+            mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = slot(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    heads[slot] = oldHeads[i];
+                }
+            }
+        }
+
+        /**
+         * Returns the last read put with the key or -1.
+         */
+        int get(long key) {
+            if (key == EMPTY) {
+                return zeroKeyHead;
+            }
+            int slot = slot(key);
+            return keys[slot] == EMPTY ? -1 : heads[slot];
+        }
+
+        /**
+         * Returns the previous read put with the same key or -1.
+         */
+        int next(int read) {
+            return next[read];
+        }
+
+        private int slot(long key) {
+            int slot = (int) (key ^ (key >>> 32)) * 0x9E3779B9 >>> 1 & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * Builds overlap graph allowing up to maxErrors edit operations (mismatches, insertions and
+     * deletions) between the suffix of the source read and the prefix of the target read. The
+     * edge weight is the length of the target read prefix, the number of edit operations is
+     * stored in {@link Vertex#errors}. With maxErrors = 0 the graph is the same as
+     * {@link #buildOverlapGraph(String[])} returns.
+     * <p>
+     * Overlaps are found by bit-parallel algorithm of Myers in block based form of Hyyro: the
+     * target read is the pattern, the source read is the text and the pattern may start at any
+     * text position. After the whole text is processed the vertical deltas of the last column
+     * give the edit distance between every pattern prefix and the best suffix of the text.
+     * A pair takes O(n * ceil(m / 64)) word operations.
+     * </p>
+     */
+    static class ApproximateOverlapGraphBuilder implements OverlapGraphBuilder {
+        private static final int ALPHABET_SIZE = 256;
+        private static final long HIGH_BIT = 1L << 63;
+
+        private final int minOverlapLength;
+        private final int maxErrors;
+
+        ApproximateOverlapGraphBuilder(int minOverlapLength, int maxErrors) {
+            this.minOverlapLength = minOverlapLength;
+            this.maxErrors = maxErrors;
+        }
+
+        @Override
+        public List<Vertex>[] buildOverlapGraph(String[] reads) {
+            byte[][] encodedReads = encodeReads(reads);
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            List<Vertex>[] adjacencyList = new List[reads.length];
+            for (int i = 0; i < adjacencyList.length; i++) {
+                adjacencyList[i] = new LinkedList<>();
+            }
+
+            int[] overlap = new int[2];
+            for (int j = 0; j < encodedReads.length; j++) {
+                byte[] pattern = encodedReads[j];
+                long[][] peq = buildPeq(pattern);
+                for (int i = 0; i < encodedReads.length; i++) {
+                    if (i != j && findOverlap(encodedReads[i], pattern.length, peq, overlap)) {
+                        adjacencyList[i].add(new Vertex(j, overlap[0], overlap[1]));
+                    }
+                }
+            }
+
+            sortAdjacencyList(adjacencyList);
+            return adjacencyList;
+        }
+
+        /**
+         * Builds match bit vectors of the pattern: bit r of peq[symbol][block] is set if the
+         * pattern has the symbol at position 64 * block + r.
+         */
+        static long[][] buildPeq(byte[] pattern) {
+            int blocks = Math.max(1, (pattern.length + 63) / 64);
+            long[][] peq = new long[ALPHABET_SIZE][blocks];
+            for (int i = 0; i < pattern.length; i++) {
+                peq[pattern[i] & 0xFF][i >>> 6] |= 1L << (i & 63);
+            }
+            return peq;
+        }
+
+        /**
+         * Finds the longest pattern prefix of at least minOverlapLength symbols which matches a
+         * suffix of the text with at most maxErrors edit operations.
+         *
+         * @param result receives the prefix length and the number of edit operations
+         * @return true if the overlap is found
+         */
+        boolean findOverlap(byte[] text, int patternLength, long[][] peq, int[] result) {
+            int blocks = peq[0].length;
+            long[] pv = new long[blocks];
+            long[] mv = new long[blocks];
+            Arrays.fill(pv, -1L);
+
+            for (byte symbol : text) {
+                long[] eq = peq[symbol & 0xFF];
+                // Text prefix may be skipped for free, so the top row never changes.
+                int carry = 0;
+                for (int b = 0; b < blocks; b++) {
+                    carry = advanceBlock(pv, mv, b, eq[b], carry);
+                }
+            }
+
+            // Edit distance of the prefix of length row, going down the last column.
+            int distance = 0;
+            int bestLength = -1;
+            int bestDistance = 0;
+            for (int row = 1; row <= patternLength; row++) {
+                int bit = row - 1;
+                long mask = 1L << (bit & 63);
+                if ((pv[bit >>> 6] & mask) != 0) {
+                    distance++;
+                } else if ((mv[bit >>> 6] & mask) != 0) {
+                    distance--;
+                }
+                if (row >= minOverlapLength && distance <= maxErrors) {
+                    bestLength = row;
+                    bestDistance = distance;
+                }
+            }
+            if (bestLength < 0) {
+                return false;
+            }
+            result[0] = bestLength;
+            result[1] = bestDistance;
+            return true;
+        }
+
+        /**
+         * Advances a block of the column by one text symbol.
+         *
+         * @param hin horizontal delta entering the block at the top (-1, 0 or 1)
+         * @return horizontal delta leaving the block at the bottom
+         */
+        private static int advanceBlock(long[] pv, long[] mv, int block, long eq, int hin) {
+            long p = pv[block];
+            long m = mv[block];
+            long hinNegative = hin < 0 ? 1 : 0;
+            long xv = eq | m;
+            eq |= hinNegative;
+            long xh = (((eq & p) + p) ^ p) | eq;
+            long ph = m | ~(xh | p);
+            long mh = p & xh;
+
+            int hout = 0;
+            if ((ph & HIGH_BIT) != 0) {
+                hout = 1;
+            } else if ((mh & HIGH_BIT) != 0) {
+                hout = -1;
+            }
+            ph <<= 1;
+            mh <<= 1;
+            mh |= hinNegative;
+            if (hin > 0) {
+                ph |= 1;
+            }
+            pv[block] = mh | ~(xv | ph);
+            mv[block] = ph & xv;
+            return hout;
+        }
+    }
+
+    /**
+     * Overlap graph that grows by batches of reads. Prefixes and suffixes of at least
+     * minOverlapLength symbols of every read are indexed by Karp-Rabin fingerprints, so adding a
+     * read looks up only its own suffixes and prefixes and finds the overlaps with all reads
+     * added before and within the same batch. A batch takes O(batch size x read length + number
+     * of fingerprint hits), independently of the number of reads in the graph.
+     * <p>
+     * Reads are expected to be of the same length, duplicates are ignored. The graph is the same
+     * as {@link #buildOverlapGraph(String[])} returns for the reads in the order of addition.
+     * </p>
+     */
+    static class IncrementalOverlapGraph {
+        private final int minOverlapLength;
+        private final List<String> reads = new ArrayList<>();
+        private final List<List<Vertex>> adjacencyList = new ArrayList<>();
+        private final Set<String> readsSet = new HashSet<>();
+        // Fingerprints of prefixes and suffixes, an entry is a read and an overlap length.
+        private final FingerprintIndex prefixIndex = new FingerprintIndex(16, 16);
+        private final FingerprintIndex suffixIndex = new FingerprintIndex(16, 16);
+        private int[] entryReads = new int[16];
+        private int entriesNumber;
+        // Stamp of the last search which linked the read, so a read is linked once.
+        private int[] linkStamps = new int[16];
+        private long[] powers = {1};
+
+        IncrementalOverlapGraph(int minOverlapLength) {
+            this.minOverlapLength = Math.max(minOverlapLength, 1);
+        }
+
+        /**
+         * Adds the batch of reads to the graph.
+         *
+         * @return number of the reads actually added, i.e. not duplicates
+         */
+        int addReads(String... batch) {
+            int added = 0;
+            for (String read : batch) {
+                if (readsSet.add(read)) {
+                    addRead(read);
+                    added++;
+                }
+            }
+            return added;
+        }
+
+        private void addRead(String read) {
+            int index = reads.size();
+            int length = read.length();
+            reads.add(read);
+            adjacencyList.add(new ArrayList<>());
+            ensurePowers(length);
+            if (index == linkStamps.length) {
+                linkStamps = Arrays.copyOf(linkStamps, index * 2);
+            }
+
+            long[] prefixFingerprints = new long[length + 1];
+            for (int i = 1; i <= length; i++) {
+                prefixFingerprints[i] = prefixFingerprints[i - 1] * FingerprintIndex.BASE
+                        + read.charAt(i - 1);
+            }
+            long[] suffixFingerprints = new long[length + 1];
+            for (int i = 1; i <= length; i++) {
+                suffixFingerprints[i] = read.charAt(length - i) * powers[i - 1]
+                        + suffixFingerprints[i - 1];
+            }
+
+            // The longest overlap comes first, so the other read is linked once.
+            int stamp = 2 * index + 1;
+            for (int overlap = length; overlap >= minOverlapLength; overlap--) {
+                for (int entry = prefixIndex.get(suffixFingerprints[overlap]); entry >= 0;
+                     entry = prefixIndex.next(entry)) {
+                    int other = entryReads[entry];
+                    String otherRead = reads.get(other);
+                    if (otherRead.length() >= overlap && linkStamps[other] != stamp
+                            && read.regionMatches(length - overlap, otherRead, 0, overlap)) {
+                        linkStamps[other] = stamp;
+                        insertEdge(index, new Vertex(other, overlap));
+                    }
+                }
+            }
+            stamp++;
+            for (int overlap = length; overlap >= minOverlapLength; overlap--) {
+                for (int entry = suffixIndex.get(prefixFingerprints[overlap]); entry >= 0;
+                     entry = suffixIndex.next(entry)) {
+                    int other = entryReads[entry];
+                    String otherRead = reads.get(other);
+                    if (otherRead.length() >= overlap && linkStamps[other] != stamp
+                            && otherRead.regionMatches(otherRead.length() - overlap, read, 0,
+                            overlap)) {
+                        linkStamps[other] = stamp;
+                        insertEdge(other, new Vertex(index, overlap));
+                    }
+                }
+            }
+
+            for (int overlap = minOverlapLength; overlap <= length; overlap++) {
+                if (entriesNumber == entryReads.length) {
+                    entryReads = Arrays.copyOf(entryReads, entriesNumber * 2);
+                }
+                entryReads[entriesNumber] = index;
+                prefixIndex.put(prefixFingerprints[overlap], entriesNumber);
+                suffixIndex.put(suffixFingerprints[overlap], entriesNumber);
+                entriesNumber++;
+            }
+        }
+
+        /**
+         * Inserts the edge keeping the order of {@link #sortAdjacencyList(List[])}.
+         */
+        private void insertEdge(int source, Vertex target) {
+            List<Vertex> list = adjacencyList.get(source);
+            int position = list.size();
+            while (position > 0 && (list.get(position - 1).weight < target.weight
+                    || list.get(position - 1).weight == target.weight
+                    && list.get(position - 1).index > target.index)) {
+                position--;
+            }
+            list.add(position, target);
+        }
+
+        private void ensurePowers(int length) {
+            if (powers.length >= length) {
+                return;
+            }
+            int oldLength = powers.length;
+            powers = Arrays.copyOf(powers, length);
+            for (int i = oldLength; i < length; i++) {
+                powers[i] = powers[i - 1] * FingerprintIndex.BASE;
+            }
+        }
+
+        int getReadsNumber() {
+            return reads.size();
+        }
+
+        String[] getReads() {
+            return reads.toArray(new String[reads.size()]);
+        }
+
+        /**
+         * Returns the graph, adjacency lists are shared with this object and must not be
+         * modified.
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        List<Vertex>[] getAdjacencyList() {
+            return adjacencyList.toArray(new List[adjacencyList.size()]);
+        }
+    }
+
+    /**
+     * Builds overlap graph using Karp-Rabin fingerprints of read prefixes.
+     * <p>
+     * Every prefix of at least minOverlapLength symbols is put into a single
+     * {@link FingerprintIndex}, the entry of the prefix of length m of read r is
+     * r * span + (m - minOverlapLength). Then suffixes of every read are probed longest first,
+     * a fingerprint hit is verified by a single comparison and the first verified hit of the
+     * other read is its overlap. Time is O(total length x read length + number of hits) instead
+     * of O(n^2 x read length^2) of the pairwise comparison.
+     * </p>
+     */
+    static class FingerprintOverlapGraphBuilder implements OverlapGraphBuilder {
+        // Mixes the prefix length into the key, so prefixes of different length rarely collide.
+        private static final long LENGTH_MULTIPLIER = 0xC2B2AE3D27D4EB4FL;
+
+        private final int minOverlapLength;
+
+        FingerprintOverlapGraphBuilder(int minOverlapLength) {
+            this.minOverlapLength = Math.max(minOverlapLength, 1);
+        }
+
+        @Override
+        public List<Vertex>[] buildOverlapGraph(String[] reads) {
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            List<Vertex>[] adjacencyList = new List[reads.length];
+            int maxLength = 0;
+            int entries = 0;
+            for (int i = 0; i < adjacencyList.length; i++) {
+                adjacencyList[i] = new LinkedList<>();
+                maxLength = Math.max(maxLength, reads[i].length());
+                entries += Math.max(reads[i].length() - minOverlapLength + 1, 0);
+            }
+            if (entries == 0) {
+                return adjacencyList;
+            }
+
+            int span = maxLength - minOverlapLength + 1;
+            FingerprintIndex index = new FingerprintIndex(entries, reads.length * span);
+            for (int i = 0; i < reads.length; i++) {
+                long fingerprint = 0;
+                for (int length = 1; length <= reads[i].length(); length++) {
+                    fingerprint = fingerprint * FingerprintIndex.BASE + reads[i].charAt(length - 1);
+                    if (length >= minOverlapLength) {
+                        index.put(key(fingerprint, length), i * span + length - minOverlapLength);
+                    }
+                }
+            }
+
+            long[] powers = new long[maxLength];
+            powers[0] = 1;
+            for (int i = 1; i < maxLength; i++) {
+                powers[i] = powers[i - 1] * FingerprintIndex.BASE;
+            }
+            long[] suffixFingerprints = new long[maxLength + 1];
+            // Read which was last linked with the other read, so only the longest overlap is kept.
+            int[] linkedFrom = new int[reads.length];
+            Arrays.fill(linkedFrom, -1);
+
+            for (int i = 0; i < reads.length; i++) {
+                String read = reads[i];
+                int readLength = read.length();
+                for (int length = 1; length <= readLength; length++) {
+                    suffixFingerprints[length] = read.charAt(readLength - length)
+                            * powers[length - 1] + suffixFingerprints[length - 1];
+                }
+                for (int length = readLength; length >= minOverlapLength; length--) {
+                    for (int entry = index.get(key(suffixFingerprints[length], length));
+                         entry >= 0; entry = index.next(entry)) {
+                        int other = entry / span;
+                        if (entry % span != length - minOverlapLength || other == i
+                                || linkedFrom[other] == i
+                                || !read.regionMatches(readLength - length, reads[other], 0,
+                                length)) {
+                            continue;
+                        }
+                        linkedFrom[other] = i;
+                        adjacencyList[i].add(new Vertex(other, length));
+                    }
+                }
+            }
+
+            sortAdjacencyList(adjacencyList);
+            return adjacencyList;
+        }
+
+        private static long key(long fingerprint, int length) {
+            return fingerprint ^ length * LENGTH_MULTIPLIER;
+        }
+    }
+
+    /**
+     * Overlap graph with non-branching chains of reads (unitigs) collapsed into single vertices.
+     * <p>
+     * Read u is followed by read v in a unitig if v is the only best (maximum overlap) successor
+     * of u and u is the only best predecessor of v. The graph of unitigs keeps only the edges
+     * from the last read of a unitig to the first read of the other one. Other edges are
+     * discarded: lower weight edges into inner reads of a unitig and edges leaving a unitig
+     * before its last read, so layouts of the unitig graph never use them. The unitig of the
+     * read 0 is the vertex 0 and starts with the read 0, so layouts of the graph start with the
+     * same read.
+     * </p>
+     */
+    static class UnitigGraph {
+        // Reads of every unitig and overlaps with the previous read of the unitig.
+        private final int[][] reads;
+        private final int[][] overlaps;
+        private final List<Vertex>[] adjacencyList;
+
+        private UnitigGraph(int[][] reads, int[][] overlaps, List<Vertex>[] adjacencyList) {
+            this.reads = reads;
+            this.overlaps = overlaps;
+            this.adjacencyList = adjacencyList;
+        }
+
+        static UnitigGraph of(List<Vertex>[] adjacencyList) {
+            int verticesNumber = adjacencyList.length;
+            int[] bestSuccessor = new int[verticesNumber];
+            int[] bestSuccessorWeight = new int[verticesNumber];
+            int[] bestPredecessor = new int[verticesNumber];
+            int[] bestPredecessorWeight = new int[verticesNumber];
+            Arrays.fill(bestSuccessor, -1);
+            Arrays.fill(bestPredecessor, -1);
+            Arrays.fill(bestPredecessorWeight, -1);
+            boolean[] ambiguousPredecessor = new boolean[verticesNumber];
+
+            for (int u = 0; u < verticesNumber; u++) {
+                int maxWeight = -1;
+                for (Vertex vertex : adjacencyList[u]) {
+                    if (vertex.weight > maxWeight) {
+                        maxWeight = vertex.weight;
+                        bestSuccessor[u] = vertex.index;
+                    } else if (vertex.weight == maxWeight) {
+                        bestSuccessor[u] = -1;
+                    }
+                    if (vertex.weight > bestPredecessorWeight[vertex.index]) {
+                        bestPredecessorWeight[vertex.index] = vertex.weight;
+                        bestPredecessor[vertex.index] = u;
+                        ambiguousPredecessor[vertex.index] = false;
+                    } else if (vertex.weight == bestPredecessorWeight[vertex.index]) {
+                        ambiguousPredecessor[vertex.index] = true;
+                    }
+                }
+                bestSuccessorWeight[u] = maxWeight;
+            }
+
+            int[] next = new int[verticesNumber];
+            int[] previous = new int[verticesNumber];
+            Arrays.fill(next, -1);
+            Arrays.fill(previous, -1);
+            for (int u = 0; u < verticesNumber; u++) {
+                int v = bestSuccessor[u];
+                if (v > START_VERTEX.index && bestPredecessor[v] == u && !ambiguousPredecessor[v]) {
+                    next[u] = v;
+                    previous[v] = u;
+                }
+            }
+
+            int[] unitigOf = new int[verticesNumber];
+            Arrays.fill(unitigOf, -1);
+            List<int[]> unitigs = new ArrayList<>();
+            for (int head = 0; head < verticesNumber; head++) {
+                if (previous[head] < 0) {
+                    unitigs.add(collectUnitig(head, next, unitigOf, unitigs.size()));
+                }
+            }
+            // The rest of reads form cycles, every cycle is cut before its smallest read.
+            for (int head = 0; head < verticesNumber; head++) {
+                if (unitigOf[head] < 0) {
+                    next[previous[head]] = -1;
+                    previous[head] = -1;
+                    unitigs.add(collectUnitig(head, next, unitigOf, unitigs.size()));
+                }
+            }
+
+            int unitigsNumber = unitigs.size();
+            int[][] overlaps = new int[unitigsNumber][];
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            List<Vertex>[] unitigAdjacencyList = new List[unitigsNumber];
+            for (int i = 0; i < unitigsNumber; i++) {
+                int[] unitig = unitigs.get(i);
+                overlaps[i] = new int[unitig.length];
+                for (int k = 1; k < unitig.length; k++) {
+                    overlaps[i][k] = bestSuccessorWeight[unitig[k - 1]];
+                }
+                unitigAdjacencyList[i] = new LinkedList<>();
+                for (Vertex vertex : adjacencyList[unitig[unitig.length - 1]]) {
+                    if (previous[vertex.index] < 0 && unitigOf[vertex.index] != i) {
+                        unitigAdjacencyList[i].add(new Vertex(unitigOf[vertex.index],
+                                vertex.weight));
+                    }
+                }
+            }
+            sortAdjacencyList(unitigAdjacencyList);
+            return new UnitigGraph(unitigs.toArray(new int[unitigsNumber][]), overlaps,
+                    unitigAdjacencyList);
+        }
+
+        private static int[] collectUnitig(int head, int[] next, int[] unitigOf, int unitig) {
+            int length = 0;
+            for (int v = head; v >= 0; v = next[v]) {
+                unitigOf[v] = unitig;
+                length++;
+            }
+            int[] result = new int[length];
+            int position = 0;
+            for (int v = head; v >= 0; v = next[v]) {
+                result[position++] = v;
+            }
+            return result;
+        }
+
+        int getVerticesNumber() {
+            return reads.length;
+        }
+
+        List<Vertex>[] getAdjacencyList() {
+            return adjacencyList;
+        }
+
+        /**
+         * Returns reads of the unitig in the order they follow in the genome.
+         */
+        int[] getReads(int unitig) {
+            return reads[unitig];
+        }
+
+        /**
+         * Returns the sequence of the unitig assembled from the reads.
+         */
+        String getSequence(String[] reads, int unitig) {
+            StringBuilder result = new StringBuilder();
+            for (int k = 0; k < this.reads[unitig].length; k++) {
+                result.append(reads[this.reads[unitig][k]], overlaps[unitig][k],
+                        reads[this.reads[unitig][k]].length());
+            }
+            return result.toString();
+        }
+
+        /**
+         * Expands the path of unitigs into the path of reads.
+         */
+        Deque<Vertex> expand(Deque<Vertex> path) {
+            Deque<Vertex> result = new LinkedList<>();
+            for (Vertex vertex : path) {
+                int[] unitig = reads[vertex.index];
+                result.add(new Vertex(unitig[0], vertex.weight));
+                for (int k = 1; k < unitig.length; k++) {
+                    result.add(new Vertex(unitig[k], overlaps[vertex.index][k]));
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Builds overlap graph keeping only the best maxOverlaps edges of every read, so the graph
+     * takes O(n x maxOverlaps) memory whatever the coverage is. The kept edges are the first
+     * maxOverlaps edges of the adjacency lists {@link #buildOverlapGraph(String[])} returns.
+     * <p>
+     * Overlaps of a read with all other reads are calculated by the {@link OverlapKernel} and
+     * pushed to a min-heap of fixed size, the worst kept edge is at its root and is replaced by
+     * a better one.
+     * </p>
+     */
+    static class TopOverlapsGraphBuilder implements OverlapGraphBuilder {
+        private final int minOverlapLength;
+        private final int maxOverlaps;
+        private final OverlapKernel overlapKernel;
+        private long discardedEdges;
+
+        TopOverlapsGraphBuilder(int minOverlapLength, int maxOverlaps) {
+            this(minOverlapLength, maxOverlaps, new VectorizedOverlapKernel());
+        }
+
+        TopOverlapsGraphBuilder(int minOverlapLength, int maxOverlaps,
+                                OverlapKernel overlapKernel) {
+            if (maxOverlaps < 1) {
+                throw new IllegalArgumentException("Number of overlaps to keep should be "
+                        + "positive: " + maxOverlaps);
+            }
+            this.minOverlapLength = minOverlapLength;
+            this.maxOverlaps = maxOverlaps;
+            this.overlapKernel = overlapKernel;
+        }
+
+        @Override
+        public List<Vertex>[] buildOverlapGraph(String[] reads) {
+            byte[][] encodedReads = encodeReads(reads);
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            List<Vertex>[] adjacencyList = new List[reads.length];
+            int[] heapTargets = new int[maxOverlaps];
+            int[] heapWeights = new int[maxOverlaps];
+            discardedEdges = 0;
+
+            for (int i = 0; i < encodedReads.length; i++) {
+                int size = 0;
+                for (int j = 0; j < encodedReads.length; j++) {
+                    if (i == j) {
+                        continue;
+                    }
+                    int overlap = overlapKernel.overlap(encodedReads[i], encodedReads[j],
+                            minOverlapLength);
+                    if (overlap < minOverlapLength) {
+                        continue;
+                    }
+                    if (size < maxOverlaps) {
+                        heapTargets[size] = j;
+                        heapWeights[size] = overlap;
+                        siftUp(heapTargets, heapWeights, size++);
+                    } else {
+                        discardedEdges++;
+                        // Targets come in increasing order, so an equal weight is not better.
+                        if (overlap > heapWeights[0]) {
+                            heapTargets[0] = j;
+                            heapWeights[0] = overlap;
+                            siftDown(heapTargets, heapWeights, size);
+                        }
+                    }
+                }
+
+                List<Vertex> list = new ArrayList<>(size);
+                for (int k = 0; k < size; k++) {
+                    list.add(new Vertex(heapTargets[k], heapWeights[k]));
+                }
+                adjacencyList[i] = list;
+            }
+
+            sortAdjacencyList(adjacencyList);
+            return adjacencyList;
+        }
+
+        /**
+         * Edge a is worse than edge b if its weight is smaller or the weights are equal and its
+         * target is larger, i.e. it follows b in the adjacency list.
+         */
+        private static boolean isWorse(int[] targets, int[] weights, int a, int b) {
+            return weights[a] != weights[b] ? weights[a] < weights[b] : targets[a] > targets[b];
+        }
+
+        private static void siftUp(int[] targets, int[] weights, int position) {
+            while (position > 0) {
+                int parent = (position - 1) / 2;
+                if (!isWorse(targets, weights, position, parent)) {
+                    return;
+                }
+                swap(targets, weights, position, parent);
+                position = parent;
+            }
+        }
+
+        private static void siftDown(int[] targets, int[] weights, int size) {
+            int position = 0;
+            while (true) {
+                int worst = position;
+                for (int child = 2 * position + 1; child <= 2 * position + 2 && child < size;
+                     child++) {
+                    if (isWorse(targets, weights, child, worst)) {
+                        worst = child;
+                    }
+                }
+                if (worst == position) {
+                    return;
+                }
+                swap(targets, weights, position, worst);
+                position = worst;
+            }
+        }
+
+        private static void swap(int[] targets, int[] weights, int a, int b) {
+            int target = targets[a];
+            targets[a] = targets[b];
+            targets[b] = target;
+            int weight = weights[a];
+            weights[a] = weights[b];
+            weights[b] = weight;
+        }
+
+        int getMaxOverlaps() {
+            return maxOverlaps;
+        }
+
+        /**
+         * Returns the number of edges discarded while building the last graph.
+         */
+        long getDiscardedEdges() {
+            return discardedEdges;
+        }
+    }
+
+    /**
+     * Circular layout: maximum weight cycle cover of the overlap graph patched into a single
+     * tour.
+     * <p>
+     * The cycle cover is an assignment of a successor to every read which maximizes the total
+     * overlap, missing edges have zero weight. It is solved as a minimum cost perfect matching
+     * of the bipartite graph of reads with cost (maximum weight - weight) of an edge. Instead
+     * of the dense missing edges every row may leave and every column may be entered through a
+     * single hub node for the cost (maximum weight), so the graph stays sparse and the perfect
+     * matching always exists. Rows are matched one by one along shortest augmenting paths found
+     * by Dijkstra algorithm with potentials, which takes O(n x (m + n) log n) in the worst case.
+     * </p>
+     * <p>
+     * Then the other cycles are merged into the cycle of the read 0, the largest first. Merging
+     * cycles by replacing edges a -> a' and b -> b' with a -> b' and b -> a' loses
+     * w(a, a') + w(b, b') - w(a, b') - w(b, a'), the pair with the smallest loss is taken among
+     * the pairs joined by an existing edge and the pair of the weakest edges of both cycles.
+     * Edge weights are looked up in a hash table, the weakest edge of the tour is kept in a heap
+     * and the joined pairs are found from the outgoing and inbound edges of the merged cycle, so
+     * patching takes O((n + m) log n) in total.
+     * </p>
+     */
+    static class CycleCoverLayoutStrategy implements LayoutStrategy {
+        private int cyclesNumber;
+
+        @Override
+        public Deque<Vertex> buildLayout(List<Vertex>[] adjacencyList) {
+            return buildLayout(CompactOverlapGraph.of(adjacencyList));
+        }
+
+        @Override
+        public Deque<Vertex> buildLayout(CompactOverlapGraph graph) {
+            int verticesNumber = graph.getVerticesNumber();
+            EdgeWeights weights = new EdgeWeights(graph);
+            int[] successor = buildCycleCover(graph, weights);
+
+            int[] cycleOf = new int[verticesNumber];
+            Arrays.fill(cycleOf, -1);
+            List<int[]> cycles = new ArrayList<>();
+            for (int v = 0; v < verticesNumber; v++) {
+                if (cycleOf[v] < 0) {
+                    int length = 0;
+                    for (int u = v; cycleOf[u] < 0; u = successor[u]) {
+                        cycleOf[u] = cycles.size();
+                        length++;
+                    }
+                    int[] cycle = new int[length];
+                    for (int k = 0, u = v; k < length; k++, u = successor[u]) {
+                        cycle[k] = u;
+                    }
+                    cycles.add(cycle);
+                }
+            }
+            cyclesNumber = cycles.size();
+
+            int tourCycle = cycleOf[START_VERTEX.index];
+            Tour tour = new Tour(graph, weights, successor, cycleOf, cycles.get(tourCycle));
+            List<int[]> order = new ArrayList<>(cycles);
+            order.remove(tourCycle);
+            // The sort is stable, cycles of the same size keep the order of their first vertices.
+            order.sort((c1, c2) -> Integer.compare(c2.length, c1.length));
+            for (int[] cycle : order) {
+                tour.merge(cycle);
+            }
+
+            Deque<Vertex> result = new LinkedList<>();
+            result.add(START_VERTEX);
+            for (int v = successor[START_VERTEX.index]; v != START_VERTEX.index;
+                 v = successor[v]) {
+                result.add(new Vertex(v, tour.successorWeight[tour.predecessor[v]]));
+            }
+            return result;
+        }
+
+        /**
+         * Returns the number of cycles of the cycle cover found by the last layout.
+         */
+        int getCyclesNumber() {
+            return cyclesNumber;
+        }
+
+        /**
+         * Finds the maximum weight cycle cover, returns successor of every vertex. Missing edges
+         * have zero weight, so the cover may consist of paths, the last vertex of a path is
+         * followed by the first one.
+         */
+        private static int[] buildCycleCover(CompactOverlapGraph graph, EdgeWeights weights) {
+            int n = graph.getVerticesNumber();
+            int maxWeight = 0;
+            for (int edge = 0; edge < graph.getEdgesNumber(); edge++) {
+                maxWeight = Math.max(maxWeight, graph.getWeight(edge));
+            }
+            // Nodes 0..n-1 are rows (sources), n..2n-1 are columns (targets), 2n is the hub.
+            int hub = 2 * n;
+            int nodes = 2 * n + 1;
+            int[] rowMatch = new int[n];
+            int[] columnMatch = new int[n];
+            Arrays.fill(rowMatch, -1);
+            Arrays.fill(columnMatch, -1);
+            long[] potential = new long[nodes];
+            long[] distance = new long[nodes];
+            int[] parent = new int[nodes];
+            boolean[] done = new boolean[nodes];
+            Arrays.fill(distance, Long.MAX_VALUE);
+            long[] heap = new long[16];
+
+            for (int row = 0; row < n; row++) {
+                int heapSize = 0;
+                distance[row] = 0;
+                heap = push(heap, heapSize++, 0, row, nodes);
+                int freeColumn = -1;
+                long freeDistance = 0;
+
+                while (heapSize > 0) {
+                    long entry = heap[0];
+                    heapSize = pop(heap, heapSize);
+                    int node = (int) (entry % nodes);
+                    long nodeDistance = entry / nodes;
+                    if (done[node] || nodeDistance > distance[node]) {
+                        continue;
+                    }
+                    done[node] = true;
+                    if (node == hub) {
+                        // Hub enters any column and returns to the rows which leave through it.
+                        for (int column = n; column < hub; column++) {
+                            if (columnMatch[column - n] != hub && relax(node, column,
+                                    potential[node] - potential[column], distance, parent)) {
+                                heap = push(heap, heapSize++, distance[column], column, nodes);
+                            }
+                        }
+                        for (int r = 0; r < n; r++) {
+                            if (rowMatch[r] == hub && relax(node, r,
+                                    potential[node] - potential[r] - maxWeight, distance,
+                                    parent)) {
+                                heap = push(heap, heapSize++, distance[r], r, nodes);
+                            }
+                        }
+                    } else if (node >= n) {
+                        int matchedRow = columnMatch[node - n];
+                        if (matchedRow < 0) {
+                            freeColumn = node;
+                            freeDistance = nodeDistance;
+                            break;
+                        }
+                        long cost = matchedRow == hub
+                                ? 0 : weights.get(matchedRow, node - n) - maxWeight;
+                        if (relax(node, matchedRow, cost + potential[node] - potential[matchedRow],
+                                distance, parent)) {
+                            heap = push(heap, heapSize++, distance[matchedRow], matchedRow,
+                                    nodes);
+                        }
+                    } else {
+                        for (int edge = graph.getOffset(node); edge < graph.getOffset(node + 1);
+                             edge++) {
+                            int column = n + graph.getTarget(edge);
+                            long cost = maxWeight - graph.getWeight(edge);
+                            if (rowMatch[node] != column && relax(node, column,
+                                    cost + potential[node] - potential[column], distance,
+                                    parent)) {
+                                heap = push(heap, heapSize++, distance[column], column, nodes);
+                            }
+                        }
+                        if (rowMatch[node] != hub && relax(node, hub,
+                                maxWeight + potential[node] - potential[hub], distance, parent)) {
+                            heap = push(heap, heapSize++, distance[hub], hub, nodes);
+                        }
+                    }
+                }
+
+                for (int node = 0; node < nodes; node++) {
+                    if (done[node]) {
+                        potential[node] += distance[node] - freeDistance;
+                    }
+                    done[node] = false;
+                    distance[node] = Long.MAX_VALUE;
+                }
+                // Forward edges of the augmenting path become the matching.
+                for (int node = freeColumn; node != row; node = parent[node]) {
+                    int previous = parent[node];
+                    if (previous < n && node < hub) {
+                        rowMatch[previous] = node;
+                        columnMatch[node - n] = previous;
+                    } else if (previous == hub && node < hub && node >= n) {
+                        columnMatch[node - n] = hub;
+                    } else if (previous < n) {
+                        rowMatch[previous] = hub;
+                    }
+                }
+            }
+
+            int[] successor = new int[n];
+            boolean[] hasPredecessor = new boolean[n];
+            for (int v = 0; v < n; v++) {
+                successor[v] = rowMatch[v] == hub ? -1 : rowMatch[v] - n;
+                if (successor[v] >= 0) {
+                    hasPredecessor[successor[v]] = true;
+                }
+            }
+            for (int head = 0; head < n; head++) {
+                if (!hasPredecessor[head]) {
+                    int tail = head;
+                    while (successor[tail] >= 0) {
+                        tail = successor[tail];
+                    }
+                    successor[tail] = head;
+                }
+            }
+            return successor;
+        }
+
+        /**
+         * Relaxes the edge of the residual graph, returns true if the distance is improved.
+         */
+        private static boolean relax(int from, int to, long reducedCost, long[] distance,
+                                     int[] parent) {
+            if (distance[from] + reducedCost >= distance[to]) {
+                return false;
+            }
+            distance[to] = distance[from] + reducedCost;
+            parent[to] = from;
+            return true;
+        }
+
+        /**
+         * Weights of the graph edges in an open addressing table keyed by the source and the
+         * target, so an edge is found without a scan of the source edges. Missing edges have
+         * zero weight.
+         */
+        private static class EdgeWeights {
+            private static final long EMPTY = -1;
+
+            private final long[] keys;
+            private final int[] values;
+            private final int mask;
+
+            EdgeWeights(CompactOverlapGraph graph) {
+                int capacity =
+                        Integer.highestOneBit(Math.max(graph.getEdgesNumber(), 1) * 2 - 1) << 1;
+                keys = new long[capacity];
+                Arrays.fill(keys, EMPTY);
+                values = new int[capacity];
+                mask = capacity - 1;
+                for (int v = 0; v < graph.getVerticesNumber(); v++) {
+                    for (int edge = graph.getOffset(v); edge < graph.getOffset(v + 1); edge++) {
+                        int slot = find(v, graph.getTarget(edge));
+                        if (keys[slot] == EMPTY) {
+                            keys[slot] = key(v, graph.getTarget(edge));
+                            values[slot] = graph.getWeight(edge);
+                        }
+                    }
+                }
+            }
+
+            int get(int source, int target) {
+                int slot = find(source, target);
+                return keys[slot] == EMPTY ? 0 : values[slot];
+            }
+
+            /**
+             * Returns the slot of the edge or the empty slot where it should be put.
+             */
+            private int find(int source, int target) {
+                long key = key(source, target);
+                int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+                while (keys[slot] != EMPTY && keys[slot] != key) {
+                    slot = (slot + 1) & mask;
+                }
+                return slot;
+            }
+
+            private static long key(int source, int target) {
+                return ((long) source << 32) | target;
+            }
+        }
+
+        /**
+         * Tour of the read 0 with the merged cycles. The weight of the successor edge is kept
+         * for every vertex and the tour vertices are kept in a heap by that weight, so the
+         * weakest edge of the tour is found without a scan. A heap entry is stale if the weight
+         * of the vertex has changed since, stale entries are dropped from the top.
+         */
+        private static class Tour {
+            private final CompactOverlapGraph graph;
+            private final EdgeWeights weights;
+            private final int[] successor;
+            private final int[] predecessor;
+            private final int[] successorWeight;
+            private final int[] cycleOf;
+            private final int tourCycle;
+            // Sources of the edges entering the vertex v are inboundSources[inboundOffsets[v]..].
+            private final int[] inboundOffsets;
+            private final int[] inboundSources;
+            private long[] heap = new long[16];
+            private int heapSize;
+
+            Tour(CompactOverlapGraph graph, EdgeWeights weights, int[] successor, int[] cycleOf,
+                 int[] tour) {
+                int n = graph.getVerticesNumber();
+                this.graph = graph;
+                this.weights = weights;
+                this.successor = successor;
+                this.cycleOf = cycleOf;
+                this.tourCycle = cycleOf[tour[0]];
+                predecessor = new int[n];
+                successorWeight = new int[n];
+                for (int v = 0; v < n; v++) {
+                    predecessor[successor[v]] = v;
+                    successorWeight[v] = weights.get(v, successor[v]);
+                }
+                inboundOffsets = new int[n + 1];
+                for (int edge = 0; edge < graph.getEdgesNumber(); edge++) {
+                    inboundOffsets[graph.getTarget(edge) + 1]++;
+                }
+                for (int v = 0; v < n; v++) {
+                    inboundOffsets[v + 1] += inboundOffsets[v];
+                }
+                inboundSources = new int[graph.getEdgesNumber()];
+                int[] position = Arrays.copyOf(inboundOffsets, n);
+                for (int v = 0; v < n; v++) {
+                    for (int edge = graph.getOffset(v); edge < graph.getOffset(v + 1); edge++) {
+                        inboundSources[position[graph.getTarget(edge)]++] = v;
+                    }
+                }
+                for (int v : tour) {
+                    pushEdge(v);
+                }
+            }
+
+            /**
+             * Merges the cycle into the tour with the smallest loss of the overlap. Candidates
+             * are the weakest edges of both cycles and the pairs joined by an edge between the
+             * cycle and the tour, which are found from the edges of the cycle vertices.
+             */
+            void merge(int[] cycle) {
+                int bestA = weakestVertex();
+                int bestB = cycle[0];
+                for (int v : cycle) {
+                    if (successorWeight[v] < successorWeight[bestB]) {
+                        bestB = v;
+                    }
+                }
+                long bestLoss = loss(bestA, bestB);
+
+                for (int b : cycle) {
+                    // Edge b -> a' from the cycle to the tour.
+                    for (int edge = graph.getOffset(b); edge < graph.getOffset(b + 1); edge++) {
+                        int target = graph.getTarget(edge);
+                        if (cycleOf[target] == tourCycle) {
+                            long loss = loss(predecessor[target], b);
+                            if (loss < bestLoss) {
+                                bestLoss = loss;
+                                bestA = predecessor[target];
+                                bestB = b;
+                            }
+                        }
+                    }
+                    // Edge a -> b' from the tour to the cycle, b' is b here.
+                    for (int i = inboundOffsets[b]; i < inboundOffsets[b + 1]; i++) {
+                        int a = inboundSources[i];
+                        if (cycleOf[a] == tourCycle) {
+                            long loss = loss(a, predecessor[b]);
+                            if (loss < bestLoss) {
+                                bestLoss = loss;
+                                bestA = a;
+                                bestB = predecessor[b];
+                            }
+                        }
+                    }
+                }
+
+                int successorA = successor[bestA];
+                int successorB = successor[bestB];
+                successor[bestA] = successorB;
+                predecessor[successorB] = bestA;
+                successorWeight[bestA] = weights.get(bestA, successorB);
+                successor[bestB] = successorA;
+                predecessor[successorA] = bestB;
+                successorWeight[bestB] = weights.get(bestB, successorA);
+                pushEdge(bestA);
+                for (int v : cycle) {
+                    cycleOf[v] = tourCycle;
+                    pushEdge(v);
+                }
+            }
+
+            /**
+             * Returns the tour vertex with the weakest successor edge, the smallest one of equal
+             * vertices.
+             */
+            private int weakestVertex() {
+                int n = successor.length;
+                while (heap[0] / n != successorWeight[(int) (heap[0] % n)]) {
+                    heapSize = pop(heap, heapSize);
+                }
+                return (int) (heap[0] % n);
+            }
+
+            private void pushEdge(int vertex) {
+                heap = push(heap, heapSize++, successorWeight[vertex], vertex, successor.length);
+            }
+
+            /**
+             * Returns the loss of replacing edges a -> a' and b -> b' with a -> b' and b -> a'.
+             */
+            private long loss(int a, int b) {
+                return (long) successorWeight[a] + successorWeight[b]
+                        - weights.get(a, successor[b]) - weights.get(b, successor[a]);
+            }
+        }
+
+        private static long[] push(long[] heap, int size, long distance, int node, int nodes) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            heap[size] = distance * nodes + node;
+            int position = size;
+            while (position > 0 && heap[(position - 1) / 2] > heap[position]) {
+                long entry = heap[position];
+                heap[position] = heap[(position - 1) / 2];
+                heap[(position - 1) / 2] = entry;
+                position = (position - 1) / 2;
+            }
+            return heap;
+        }
+
+        private static int pop(long[] heap, int size) {
+            heap[0] = heap[--size];
+            int position = 0;
+            while (2 * position + 1 < size) {
+                int child = 2 * position + 1;
+                if (child + 1 < size && heap[child + 1] < heap[child]) {
+                    child++;
+                }
+                if (heap[position] <= heap[child]) {
+                    break;
+                }
+                long entry = heap[position];
+                heap[position] = heap[child];
+                heap[child] = entry;
+                position = child;
+            }
+            return size;
+        }
+    }
+
+    /**
+     * Read store keeping all bases in a single long array, 2 bits per base (A, C, G, T), reads
+     * are addressed by offset and length arrays (struct of arrays). Other symbols (usually N)
+     * are masked: the base positions and the original symbols are kept in sorted arrays, a read
+     * refers to the range of its masked positions, so reads without masked bases are decoded
+     * without a lookup. A base takes 2 bits instead of 2 bytes of a String.
+     */
+    static class PackedReadStore {
+        private static final char[] SYMBOLS = {'A', 'C', 'G', 'T'};
+        private static final int BASES_PER_WORD = 32;
+        static final int MAX_KMER_LENGTH = BASES_PER_WORD;
+
+        private long[] bases = new long[16];
+        private long[] offsets = new long[17];
+        private int[] lengths = new int[16];
+        // Masked positions of the reads from maskedFrom[read] to maskedFrom[read + 1].
+        private int[] maskedFrom = new int[17];
+        private long[] maskedPositions = new long[0];
+        private byte[] maskedSymbols = new byte[0];
+        private int maskedNumber;
+        private int size;
+
+        static PackedReadStore of(Collection<? extends CharSequence> reads) {
+            PackedReadStore store = new PackedReadStore();
+            for (CharSequence read : reads) {
+                store.add(read);
+            }
+            return store;
+        }
+
+        static PackedReadStore of(ReadStore reads) {
+            PackedReadStore store = new PackedReadStore();
+            for (int i = 0; i < reads.size(); i++) {
+                store.add(reads, i);
+            }
+            return store;
+        }
+
+        /**
+         * Appends the read, returns its index.
+         */
+        int add(CharSequence read) {
+            long offset = reserve(read.length());
+            for (int i = 0; i < read.length(); i++) {
+                putSymbol(offset + i, read.charAt(i));
+            }
+            return commit(read.length());
+        }
+
+        /**
+         * Appends the read of the byte store packing its bytes directly, returns its index.
+         */
+        int add(ReadStore reads, int read) {
+            int length = reads.length(read);
+            long offset = reserve(length);
+            for (int i = 0; i < length; i++) {
+                putSymbol(offset + i, (char) (reads.byteAt(read, i) & 0xFF));
+            }
+            return commit(length);
+        }
+
+        /**
+         * Makes room for the next read of the given length, returns its offset.
+         */
+        private long reserve(int length) {
+            if (size == lengths.length) {
+                offsets = Arrays.copyOf(offsets, size * 2 + 1);
+                maskedFrom = Arrays.copyOf(maskedFrom, size * 2 + 1);
+                lengths = Arrays.copyOf(lengths, size * 2);
+            }
+            long end = offsets[size] + length;
+            int words = (int) ((end + BASES_PER_WORD - 1) / BASES_PER_WORD);
+            if (words > bases.length) {
+                bases = Arrays.copyOf(bases, Math.max(words, bases.length * 2));
+            }
+            return offsets[size];
+        }
+
+        private void putSymbol(long position, char symbol) {
+            int code = encode(symbol);
+            if (code < 0) {
+                addMasked(position, symbol);
+                code = 0;
+            }
+            bases[(int) (position / BASES_PER_WORD)] |=
+                    (long) code << (2 * (position % BASES_PER_WORD));
+        }
+
+        private int commit(int length) {
+            lengths[size] = length;
+            offsets[size + 1] = offsets[size] + length;
+            maskedFrom[size + 1] = maskedNumber;
+            return size++;
+        }
+
+        private void addMasked(long position, char symbol) {
+            if (maskedNumber == maskedPositions.length) {
+                maskedPositions = Arrays.copyOf(maskedPositions, Math.max(16, maskedNumber * 2));
+                maskedSymbols = Arrays.copyOf(maskedSymbols, maskedPositions.length);
+            }
+            maskedPositions[maskedNumber] = position;
+            maskedSymbols[maskedNumber] = (byte) symbol;
+            maskedNumber++;
+        }
+
+        private static int encode(char symbol) {
+            switch (symbol) {
+                case 'A':
+                    return 0;
+                case 'C':
+                    return 1;
+                case 'G':
+                    return 2;
+                case 'T':
+                    return 3;
+                default:
+                    return -1;
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        int length(int read) {
+            return lengths[read];
+        }
+
+        /**
+         * Returns 2-bit code of the base, the code of a masked base is 0.
+         */
+        int baseAt(int read, int position) {
+            long index = offsets[read] + position;
+            return (int) (bases[(int) (index / BASES_PER_WORD)]
+                    >>> (2 * (index % BASES_PER_WORD))) & 3;
+        }
+
+        /**
+         * Returns true if any read has a symbol other than A, C, G, T.
+         */
+        boolean hasMaskedBases() {
+            return maskedNumber > 0;
+        }
+
+        boolean isMasked(int read, int position) {
+            return maskedIndex(read, position) >= 0;
+        }
+
+        char charAt(int read, int position) {
+            if (maskedFrom[read] != maskedFrom[read + 1]) {
+                int masked = maskedIndex(read, position);
+                if (masked >= 0) {
+                    return (char) (maskedSymbols[masked] & 0xFF);
+                }
+            }
+            return SYMBOLS[baseAt(read, position)];
+        }
+
+        private int maskedIndex(int read, int position) {
+            int from = maskedFrom[read];
+            int to = maskedFrom[read + 1];
+            if (from == to) {
+                return -1;
+            }
+            int index = Arrays.binarySearch(maskedPositions, from, to, offsets[read] + position);
+            return index >= 0 ? index : -1;
+        }
+
+        String getRead(int read) {
+            char[] result = new char[lengths[read]];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = SYMBOLS[baseAt(read, i)];
+            }
+            for (int masked = maskedFrom[read]; masked < maskedFrom[read + 1]; masked++) {
+                result[(int) (maskedPositions[masked] - offsets[read])] =
+                        (char) (maskedSymbols[masked] & 0xFF);
+            }
+            return new String(result);
+        }
+
+        /**
+         * Returns 2-bit code of the k-mer starting at the position, the first base is in the
+         * highest bits, or -1 if the k-mer contains a masked base.
+         */
+        long kmer(int read, int position, int k) {
+            if (k > MAX_KMER_LENGTH) {
+                throw new IllegalArgumentException("k-mer is longer than " + MAX_KMER_LENGTH
+                        + ": " + k);
+            }
+            for (int masked = maskedFrom[read]; masked < maskedFrom[read + 1]; masked++) {
+                long maskedPosition = maskedPositions[masked] - offsets[read];
+                if (maskedPosition >= position && maskedPosition < position + k) {
+                    return -1;
+                }
+            }
+            long result = 0;
+            for (int i = 0; i < k; i++) {
+                result = result << 2 | baseAt(read, position + i);
+            }
+            return result;
+        }
+
+        /**
+         * Decodes k-mer code returned by {@link #kmer(int, int, int)}.
+         */
+        static String decodeKmer(long kmer, int k) {
+            char[] result = new char[k];
+            for (int i = k - 1; i >= 0; i--) {
+                result[i] = SYMBOLS[(int) (kmer & 3)];
+                kmer >>>= 2;
+            }
+            return new String(result);
+        }
+
+        /**
+         * Returns 2-bit codes of count (at most 32) bases starting at the index of the bases
+         * array, the first base is in the lowest bits.
+         */
+        private long bits(long index, int count) {
+            int word = (int) (index / BASES_PER_WORD);
+            int shift = (int) (2 * (index % BASES_PER_WORD));
+            long result = bases[word] >>> shift;
+            if (shift > 0 && shift + 2 * count > Long.SIZE) {
+                result |= bases[word + 1] << (Long.SIZE - shift);
+            }
+            return count == BASES_PER_WORD ? result : result & ((1L << (2 * count)) - 1);
+        }
+
+        /**
+         * Returns true if the regions of the reads are equal.
+         */
+        boolean regionMatches(int read1, int from1, int read2, int from2, int length) {
+            return matchingBases(read1, from1, read2, from2, length) == length;
+        }
+
+        /**
+         * Returns the number of equal bases at the start of the regions of the reads. Reads
+         * without masked bases are compared 32 bases at a time, the first mismatch in a word is
+         * found by the trailing zeros of the difference.
+         */
+        private int matchingBases(int read1, int from1, int read2, int from2, int length) {
+            if (maskedFrom[read1] != maskedFrom[read1 + 1]
+                    || maskedFrom[read2] != maskedFrom[read2 + 1]) {
+                for (int i = 0; i < length; i++) {
+                    if (charAt(read1, from1 + i) != charAt(read2, from2 + i)) {
+                        return i;
+                    }
+                }
+                return length;
+            }
+            long index1 = offsets[read1] + from1;
+            long index2 = offsets[read2] + from2;
+            for (int i = 0; i < length; i += BASES_PER_WORD) {
+                int count = Math.min(BASES_PER_WORD, length - i);
+                long difference = bits(index1 + i, count) ^ bits(index2 + i, count);
+                if (difference != 0) {
+                    return i + Long.numberOfTrailingZeros(difference) / 2;
+                }
+            }
+            return length;
+        }
+
+        /**
+         * Returns the longest overlap of the read1 suffix and the read2 prefix which is not
+         * shorter than minOverlapLength, or 0. The pair and the compared bases are counted in
+         * the statistics as {@link #stringsOverlap(String, String)} counts them.
+         */
+        int overlap(int read1, int read2, int minOverlapLength, Statistics statistics) {
+            int result = 0;
+            long charsCompared = 0;
+            for (int overlap = Math.min(lengths[read1], lengths[read2]);
+                 overlap >= Math.max(minOverlapLength, 1); overlap--) {
+                int matching = matchingBases(read1, lengths[read1] - overlap, read2, 0, overlap);
+                charsCompared += matching;
+                if (matching == overlap) {
+                    result = overlap;
+                    break;
+                }
+                // The mismatched base
+                charsCompared++;
+            }
+            statistics.pairsCompared.increment();
+            statistics.charsCompared.add(charsCompared);
+            return result;
+        }
+
+        /**
+         * Returns indices of distinct reads in the order of the first occurrence, reads are
+         * hashed by their packed bases in an open addressing table of read indices.
+         */
+        int[] distinctReads() {
+            int[] table = new int[Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1];
+            Arrays.fill(table, -1);
+            int mask = table.length - 1;
+            int[] result = new int[size];
+            int distinct = 0;
+            for (int read = 0; read < size; read++) {
+                int slot = hash(read) & mask;
+                while (table[slot] >= 0 && !(lengths[table[slot]] == lengths[read]
+                        && regionMatches(table[slot], 0, read, 0, lengths[read]))) {
+                    slot = (slot + 1) & mask;
+                }
+                if (table[slot] < 0) {
+                    table[slot] = read;
+                    result[distinct++] = read;
+                }
+            }
+            return Arrays.copyOf(result, distinct);
+        }
+
+        private int hash(int read) {
+            int hash = lengths[read];
+            for (int i = 0; i < lengths[read]; i += BASES_PER_WORD) {
+                hash = 31 * hash + Long.hashCode(
+                        bits(offsets[read] + i, Math.min(BASES_PER_WORD, lengths[read] - i)));
+            }
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    /**
+     * Counters and phase timers of the assembler. Counters are {@link LongAdder}s, hot loops
+     * accumulate local values and add them once per call, so the statistics are always on.
+     * Pairs and symbols compared are counted by {@link #stringsOverlap(String, String)} and
+     * {@link PackedReadStore#overlap}, also for the pairs verified by
+     * {@link MinimizerOverlapGraphBuilder}. Other overlap graph builders only contribute the
+     * emitted edges.
+     */
+    static class Statistics {
+        enum Phase {
+            CONTAINED_READS, OVERLAP_GRAPH, LAYOUT, ASSEMBLY
+        }
+
+        final LongAdder pairsCompared = new LongAdder();
+        final LongAdder charsCompared = new LongAdder();
+        final LongAdder edgesEmitted = new LongAdder();
+        final LongAdder backtracks = new LongAdder();
+        // Maximum depth of the Hamiltonian path search.
+        final LongAccumulator searchDepth = new LongAccumulator(Math::max, 0);
+        private final Map<Phase, LongAdder> phaseNanos = new EnumMap<>(Phase.class);
+
+        Statistics() {
+            for (Phase phase : Phase.values()) {
+                phaseNanos.put(phase, new LongAdder());
+            }
+        }
+
+        void addPhaseTime(Phase phase, long nanos) {
+            phaseNanos.get(phase).add(nanos);
+        }
+
+        long getPairsCompared() {
+            return pairsCompared.sum();
+        }
+
+        long getCharsCompared() {
+            return charsCompared.sum();
+        }
+
+        long getEdgesEmitted() {
+            return edgesEmitted.sum();
+        }
+
+        long getBacktracks() {
+            return backtracks.sum();
+        }
+
+        long getSearchDepth() {
+            return searchDepth.get();
+        }
+
+        long getPhaseMillis(Phase phase) {
+            return phaseNanos.get(phase).sum() / 1_000_000;
+        }
+
+        void reset() {
+            pairsCompared.reset();
+            charsCompared.reset();
+            edgesEmitted.reset();
+            backtracks.reset();
+            searchDepth.reset();
+            for (LongAdder nanos : phaseNanos.values()) {
+                nanos.reset();
+            }
+        }
+
+        /**
+         * Returns the statistics on a single line.
+         */
+        String summary() {
+            StringBuilder result = new StringBuilder()
+                    .append("pairs=").append(getPairsCompared())
+                    .append(" chars=").append(getCharsCompared())
+                    .append(" edges=").append(getEdgesEmitted())
+                    .append(" depth=").append(getSearchDepth())
+                    .append(" backtracks=").append(getBacktracks());
+            for (Phase phase : Phase.values()) {
+                result.append(' ').append(phase.name().toLowerCase(Locale.ROOT)).append('=')
+                        .append(getPhaseMillis(phase)).append("ms");
+            }
+            return result.toString();
+        }
+    }
+}
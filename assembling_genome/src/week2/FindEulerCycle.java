@@ -1,14 +1,12 @@
 package week2;
 
 import java.util.ArrayList;
-import java.util.Deque;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
-import java.util.Set;
 
 /**
  * Solution for problem 2 of week 2.
@@ -46,61 +44,55 @@ public class FindEulerCycle {
         Graph graph = new Graph(vertices);
 
         FindEulerCycle solver = new FindEulerCycle();
-        Path path = solver.buildPath(graph);
+        int[] cycle = solver.buildCycle(graph);
 
-        System.out.println(path.toString());
+        StringBuilder result = new StringBuilder(cycle.length == 0 ? "0" : "1\n");
+        for (int i = 0; i + 1 < cycle.length; i++) {
+            result.append(cycle[i] + 1).append(' ');
+        }
+        System.out.println(result);
     }
 
     /**
      * Builds a Eulerian path(cycle) for the provided graph.
      */
     Path buildPath(Graph graph) {
-        if (!hasEulerCycle(graph)) {
+        int[] cycle = buildCycle(graph);
+        if (cycle.length == 0) {
             return EMPTY_PAtH;
         }
 
         Path path = new Path();
-        Deque<Edge> edgeStack = new LinkedList<>();
-        Set<Integer> usedEdges = new HashSet<>();
-        Vertex vertex = graph.getVertices()[0];
-        path.addStep(vertex);
-        edgeStack.addAll(vertex.getOutgoingEdges());
-        boolean setNewStart = false;
-
-        while (!edgeStack.isEmpty()) {
-            Edge edge = edgeStack.pop();
-            usedEdges.add(edge.getId());
-
-            Vertex destinationVertex = graph.getVertices()[edge.getDestinationVertexId()];
-            List<Edge> outgoingEdges = destinationVertex.getOutgoingEdges();
-            boolean nextMoveFound = false;
-            for (Edge outgoingEdge : outgoingEdges) {
-                if (!usedEdges.contains(outgoingEdge.getId())) {
-                    if (outgoingEdge.isSelfLoop()) {
-                        path.addStep(destinationVertex);
-                        usedEdges.add(outgoingEdge.getId());
-                    } else {
-                        nextMoveFound = true;
-                        edgeStack.push(outgoingEdge);
-                    }
-                }
-            }
-            if (nextMoveFound) {
-                if (setNewStart) {
-                    path.assignFirstStep(graph.getVertices()[edge.getSourceVertexid()]);
-                    setNewStart = false;
-                }
-                path.addStep(destinationVertex);
-            } else {
-                // Based on the Euler theorem proof, vertex has no available outgoing edges if it is a start point of the current path,
-                // i.e. source vertex for the next available edge should be set as a start vertex of the path.
-                path.completeCycle();
-                setNewStart = true;
-            }
+        for (int i = 0; i + 1 < cycle.length; i++) {
+            path.addStep(graph.getVertices()[cycle[i]]);
         }
+        path.completeCycle();
         return path;
     }
 
+    /**
+     * Builds a Eulerian cycle for the provided graph with {@link EulerTour}, returns vertex ids
+     * with the first vertex repeated at the end or an empty array if there is no cycle.
+     */
+    int[] buildCycle(Graph graph) {
+        if (!hasEulerCycle(graph)) {
+            return new int[0];
+        }
+        Vertex[] vertices = graph.getVertices();
+        int[] offsets = new int[vertices.length + 1];
+        for (int i = 0; i < vertices.length; i++) {
+            offsets[i + 1] = offsets[i] + vertices[i].getOutgoingEdges().size();
+        }
+        int[] targets = new int[offsets[vertices.length]];
+        for (int i = 0; i < vertices.length; i++) {
+            int position = offsets[i];
+            for (Edge edge : vertices[i].getOutgoingEdges()) {
+                targets[position++] = edge.getDestinationVertexId();
+            }
+        }
+        return new EulerTour(offsets, targets).build(0);
+    }
+
     /**
      * Checks if the given graph has Eulerian cycle.
      * According to the Euler theorem directed graph has a cycle if it is balanced and strongly connected.
@@ -117,65 +109,41 @@ public class FindEulerCycle {
 
     /**
      * Checks if the provided graph is a strongly connected (all vertices belong to a single strongly connected component).
+     * All vertices should be reachable from the vertex 0 following outgoing edges and following inbound edges backwards,
+     * so the graph is not transposed.
      */
     private boolean isStronglyConected(Graph graph) {
-        boolean[] visited = visitGraphVertices(graph);
-        for (boolean isVisited : visited) {
-            if (!isVisited) {
-                return false;
-            }
-        }
-
-        Graph transposedGraph = transposeGraph(graph);
-        boolean[] visitedTransposed = visitGraphVertices(transposedGraph);
-        for (boolean isVisited : visitedTransposed) {
-            if (!isVisited) {
-                return false;
-            }
-        }
-
-        return true;
-    }
-
-    /**
-     * Creates transposed graph for the provided graph object.
-     */
-    private Graph transposeGraph(Graph graph) {
-        Vertex[] resultVertices = new Vertex[graph.getVertices().length];
-        for (int i = 0; i < resultVertices.length; i++) {
-            resultVertices[i] = new Vertex(i);
-            Vertex inVertex = graph.getVertices()[i];
-            for (Edge inEdge : inVertex.getInboundEdges()) {
-                resultVertices[i].addOutgoingEdge(
-                        new Edge(inEdge.getId(), inEdge.getDestinationVertexId(), inEdge.getSourceVertexid()));
-            }
-            for (Edge outEdge : inVertex.getOutgoingEdges()) {
-                resultVertices[i].addInboundEdge((
-                        new Edge(outEdge.getId(), outEdge.getDestinationVertexId(), outEdge.getSourceVertexid())));
-            }
-        }
-        return new Graph(resultVertices);
+        return isReachable(graph, true) && isReachable(graph, false);
     }
 
     /**
-     * Iterate over graph vertices using DFS.
+     * Iterate over graph vertices using DFS along outgoing edges (forward) or inbound edges, returns true if all
+     * vertices are visited.
      */
-    private boolean[] visitGraphVertices(Graph graph) {
-        boolean[] visited = new boolean[graph.getVertices().length];
-        Deque<Vertex> stack = new LinkedList<>();
-        stack.add(graph.getVertices()[0]);
-
-        while (!stack.isEmpty()) {
-            Vertex vertex = stack.pop();
-            visited[vertex.getId()] = true;
-
-            for (Edge edge : vertex.getOutgoingEdges()) {
-                if (!visited[edge.getDestinationVertexId()]) {
-                    stack.push(graph.getVertices()[edge.getDestinationVertexId()]);
+    private boolean isReachable(Graph graph, boolean forward) {
+        Vertex[] vertices = graph.getVertices();
+        if (vertices.length == 0) {
+            return false;
+        }
+        BitSet visited = new BitSet(vertices.length);
+        int[] stack = new int[vertices.length];
+        int stackSize = 0;
+        stack[stackSize++] = 0;
+        visited.set(0);
+        int visitedNumber = 1;
+
+        while (stackSize > 0) {
+            Vertex vertex = vertices[stack[--stackSize]];
+            for (Edge edge : forward ? vertex.getOutgoingEdges() : vertex.getInboundEdges()) {
+                int next = forward ? edge.getDestinationVertexId() : edge.getSourceVertexid();
+                if (!visited.get(next)) {
+                    visited.set(next);
+                    visitedNumber++;
+                    stack[stackSize++] = next;
                 }
             }
         }
-        return visited;
+        return visitedNumber == vertices.length;
     }
 
     /**
@@ -259,6 +227,74 @@ public class FindEulerCycle {
         }
     }
 
+    /**
+     * Hierholzer algorithm over a graph kept in the compressed sparse row form: successors of
+     * the vertex v are targets[offsets[v]] to targets[offsets[v + 1] - 1]. A cursor per vertex
+     * points to its next unused edge, so every edge is looked at once and the tour takes
+     * O(V + E) time in int arrays only.
+     */
+    static class EulerTour {
+        private final int[] offsets;
+        private final int[] targets;
+
+        EulerTour(int[] offsets, int[] targets) {
+            this.offsets = offsets;
+            this.targets = targets;
+        }
+
+        /**
+         * Builds the graph from the edge arrays, edges of a vertex keep their order.
+         */
+        static EulerTour of(int verticesNumber, int[] sources, int[] targets, int edgesNumber) {
+            int[] offsets = new int[verticesNumber + 1];
+            for (int e = 0; e < edgesNumber; e++) {
+                offsets[sources[e] + 1]++;
+            }
+            for (int v = 0; v < verticesNumber; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+            int[] position = Arrays.copyOf(offsets, verticesNumber);
+            int[] sortedTargets = new int[edgesNumber];
+            for (int e = 0; e < edgesNumber; e++) {
+                sortedTargets[position[sources[e]]++] = targets[e];
+            }
+            return new EulerTour(offsets, sortedTargets);
+        }
+
+        int getVerticesNumber() {
+            return offsets.length - 1;
+        }
+
+        int getEdgesNumber() {
+            return offsets[offsets.length - 1];
+        }
+
+        /**
+         * Returns vertices of the Eulerian cycle from the start vertex, the start vertex is
+         * repeated at the end. The graph should be balanced and strongly connected, otherwise
+         * only the cycle through the start vertex is returned.
+         */
+        int[] build(int start) {
+            int[] cursors = Arrays.copyOf(offsets, getVerticesNumber());
+            // The stack grows from the beginning of the array and the cycle from its end. Every
+            // vertex on them except the start came through its own edge, so they never overlap.
+            int[] result = new int[getEdgesNumber() + 1];
+            int stackSize = 0;
+            int cycleStart = result.length;
+            result[stackSize++] = start;
+            while (stackSize > 0) {
+                int vertex = result[stackSize - 1];
+                if (cursors[vertex] < offsets[vertex + 1]) {
+                    result[stackSize++] = targets[cursors[vertex]++];
+                } else {
+                    stackSize--;
+                    result[--cycleStart] = vertex;
+                }
+            }
+            return cycleStart == 0 ? result : Arrays.copyOfRange(result, cycleStart, result.length);
+        }
+    }
+
     /**
      * Data structure for holding eulerian path for a directed graph.
      */
@@ -2,6 +2,7 @@ package week2;
 
 import java.io.BufferedInputStream;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.HashMap;
@@ -111,69 +112,42 @@ public class KUniversalCircularString {
 
     /**
      * Checks if the provided graph is a strongly connected (all vertices belong to a single strongly connected component).
+     * All vertices should be reachable from one vertex following outgoing edges and following inbound edges backwards,
+     * so the graph is not transposed.
      */
     private boolean isStronglyConected(DeBruijnGraph graph) {
-        Map<String, Boolean> visited = visitGraphVertices(graph);
-        for (boolean isVisited : visited.values()) {
-            if (!isVisited) {
-                return false;
-            }
-        }
-
-        DeBruijnGraph transposedGraph = transposeGraph(graph);
-        Map<String, Boolean> visitedTransposed = visitGraphVertices(transposedGraph);
-        for (boolean isVisited : visitedTransposed.values()) {
-            if (!isVisited) {
-                return false;
-            }
-        }
-
-        return true;
+        return isReachable(graph, true) && isReachable(graph, false);
     }
 
     /**
-     * Creates transposed graph for the provided graph object.
+     * Iterate over graph vertices using DFS along outgoing edges (forward) or inbound edges, returns true if all
+     * vertices are visited. Visits are kept in a bit set by vertex index.
      */
-    private DeBruijnGraph transposeGraph(DeBruijnGraph graph) {
-        DeBruijnGraph result = new DeBruijnGraph();
-        for (Vertex vertex : graph.getVertices()) {
-            Vertex resultVertex = new Vertex(vertex.getId());
-            for (Edge inEdge : vertex.getInboundEdges()) {
-                resultVertex.addOutgoingEdge(
-                        new Edge(inEdge.getId(), inEdge.getName(), inEdge.getDestinationVertexId(), inEdge.getSourceVertexId()));
-            }
-            for (Edge outEdge : vertex.getOutgoingEdges()) {
-                resultVertex.addInboundEdge((
-                        new Edge(outEdge.getId(), outEdge.getName(), outEdge.getDestinationVertexId(), outEdge.getSourceVertexId())));
-            }
-            result.getVertexMap().put(vertex.getId(), resultVertex);
-        }
-
-        return result;
-    }
-
-    /**
-     * Iterate over graph vertices using DFS.
-     */
-    private Map<String, Boolean> visitGraphVertices(DeBruijnGraph graph) {
-        Map<String, Boolean> visited = new HashMap<>(graph.getVertices().size());
-        for (Vertex vertex : graph.getVertices()) {
-            visited.put(vertex.getId(), false);
-        }
-        Deque<Vertex> stack = new LinkedList<>();
-        stack.add(graph.getVertices().iterator().next());
-
-        while (!stack.isEmpty()) {
-            Vertex vertex = stack.pop();
-            visited.put(vertex.getId(), true);
-
-            for (Edge edge : vertex.getOutgoingEdges()) {
-                if (!visited.get(edge.getDestinationVertexId())) {
-                    stack.push(graph.getVertexMap().get(edge.getDestinationVertexId()));
+    private boolean isReachable(DeBruijnGraph graph, boolean forward) {
+        int verticesNumber = graph.getVertices().size();
+        if (verticesNumber == 0) {
+            return false;
+        }
+        BitSet visited = new BitSet(verticesNumber);
+        Vertex[] stack = new Vertex[verticesNumber];
+        int stackSize = 0;
+        stack[stackSize++] = graph.getVertices().iterator().next();
+        visited.set(stack[0].getIndex());
+        int visitedNumber = 1;
+
+        while (stackSize > 0) {
+            Vertex vertex = stack[--stackSize];
+            for (Edge edge : forward ? vertex.getOutgoingEdges() : vertex.getInboundEdges()) {
+                Vertex next = graph.getVertexMap().get(
+                        forward ? edge.getDestinationVertexId() : edge.getSourceVertexId());
+                if (!visited.get(next.getIndex())) {
+                    visited.set(next.getIndex());
+                    visitedNumber++;
+                    stack[stackSize++] = next;
                 }
             }
         }
-        return visited;
+        return visitedNumber == verticesNumber;
     }
 
     DeBruijnGraph buildDeBruijnGraph(List<String> kmers) {
@@ -221,14 +195,14 @@ public class KUniversalCircularString {
             Edge edge = new Edge(edgeCounter++, kmer, leftPart, rightPart);
             if (leftPart.equals(rightPart)) {
                 // Self-loop edge
-                Vertex vertex = vertexMap.computeIfAbsent(leftPart, k -> new Vertex(leftPart));
+                Vertex vertex = vertexMap.computeIfAbsent(leftPart, k -> new Vertex(leftPart, vertexMap.size()));
                 vertex.addOutgoingEdge(edge);
                 vertex.addInboundEdge(edge);
             } else {
-                Vertex leftVertex = vertexMap.computeIfAbsent(leftPart, k -> new Vertex(leftPart));
+                Vertex leftVertex = vertexMap.computeIfAbsent(leftPart, k -> new Vertex(leftPart, vertexMap.size()));
                 leftVertex.addOutgoingEdge(edge);
 
-                Vertex rightVertex = vertexMap.computeIfAbsent(rightPart, k -> new Vertex(rightPart));
+                Vertex rightVertex = vertexMap.computeIfAbsent(rightPart, k -> new Vertex(rightPart, vertexMap.size()));
                 rightVertex.addInboundEdge(edge);
             }
         }
@@ -247,11 +221,14 @@ public class KUniversalCircularString {
      */
     static class Vertex {
         private final String id;
+        // Dense index of the vertex in the graph in the order of creation.
+        private final int index;
         private final List<Edge> inboundEdges;
         private final List<Edge> outgoingEdges;
 
-        Vertex(String id) {
+        Vertex(String id, int index) {
             this.id = id;
+            this.index = index;
             inboundEdges = new ArrayList<>();
             outgoingEdges = new ArrayList<>();
         }
@@ -260,6 +237,10 @@ public class KUniversalCircularString {
             return id;
         }
 
+        int getIndex() {
+            return index;
+        }
+
         List<Edge> getInboundEdges() {
             return inboundEdges;
         }
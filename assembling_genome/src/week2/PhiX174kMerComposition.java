@@ -2,16 +2,14 @@ package week2;
 
 import java.io.BufferedInputStream;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Deque;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Scanner;
-import java.util.Set;
 
 /**
  * Solution for problem 4 of week 2.
@@ -43,6 +41,16 @@ public class PhiX174kMerComposition {
      * Asembly a genome from the provided list of kmers.
      */
     String assemblyGenome(Collection<String> kmers) {
+        KmerGraph kmerGraph = buildKmerGraph(kmers);
+        if (kmerGraph != null) {
+            int[] circuit = buildPath(kmerGraph);
+            StringBuilder result = new StringBuilder();
+            for (int i = 0; i + 1 < circuit.length; i++) {
+                result.append(kmerGraph.getLastBase(circuit[i]));
+            }
+            return result.toString();
+        }
+
         DeBruijnGraph deBruijnGraph = buildDeBruijnGraph(kmers);
         Path path = buildPath(deBruijnGraph);
 
@@ -55,52 +63,37 @@ public class PhiX174kMerComposition {
     }
 
     /**
-     * Builds a Eulerian path(cycle) for the provided graph.
+     * Builds a Eulerian path(cycle) for the provided graph. Vertices are numbered by
+     * {@link Vertex#getIndex()} and the cycle is built by {@link EulerTour}.
      */
     Path buildPath(DeBruijnGraph graph) {
         if (!hasEulerCycle(graph)) {
             return EMPTY_PAtH;
         }
 
-        Path path = new Path();
-        Deque<Edge> edgeStack = new LinkedList<>();
-        Set<Integer> usedEdges = new HashSet<>();
-        Vertex vertex = graph.getVertices().iterator().next();
-        path.addStep(vertex);
-        edgeStack.addAll(vertex.getOutgoingEdges());
-        boolean setNewStart = false;
-
-        while (!edgeStack.isEmpty()) {
-            Edge edge = edgeStack.pop();
-            usedEdges.add(edge.getId());
-
-            Vertex destinationVertex = graph.getVertexMap().get(edge.getDestinationVertexId());
-            List<Edge> outgoingEdges = destinationVertex.getOutgoingEdges();
-            boolean nextMoveFound = false;
-            for (Edge outgoingEdge : outgoingEdges) {
-                if (!usedEdges.contains(outgoingEdge.getId())) {
-                    if (outgoingEdge.isSelfLoop()) {
-                        path.addStep(destinationVertex);
-                        usedEdges.add(outgoingEdge.getId());
-                    } else {
-                        nextMoveFound = true;
-                        edgeStack.push(outgoingEdge);
-                    }
-                }
-            }
-            if (nextMoveFound) {
-                if (setNewStart) {
-                    path.assignFirstStep(graph.getVertexMap().get(edge.getSourceVertexId()));
-                    setNewStart = false;
-                }
-                path.addStep(destinationVertex);
-            } else {
-                // Based on the Euler theorem proof, vertex has no available outgoing edges if it is a start point of the current path,
-                // i.e. source vertex for the next available edge should be set as a start vertex of the path.
-                path.completeCycle();
-                setNewStart = true;
+        Vertex[] vertices = new Vertex[graph.getVertices().size()];
+        for (Vertex vertex : graph.getVertices()) {
+            vertices[vertex.getIndex()] = vertex;
+        }
+        int[] offsets = new int[vertices.length + 1];
+        for (int i = 0; i < vertices.length; i++) {
+            offsets[i + 1] = offsets[i] + vertices[i].getOutgoingEdges().size();
+        }
+        Map<String, Vertex> vertexMap = graph.getVertexMap();
+        int[] targets = new int[offsets[vertices.length]];
+        for (int i = 0; i < vertices.length; i++) {
+            int position = offsets[i];
+            for (Edge edge : vertices[i].getOutgoingEdges()) {
+                targets[position++] = vertexMap.get(edge.getDestinationVertexId()).getIndex();
             }
         }
+        int[] cycle = new EulerTour(offsets, targets).build(0);
+
+        Path path = new Path();
+        for (int i = 0; i + 1 < cycle.length; i++) {
+            path.addStep(vertices[cycle[i]]);
+        }
+        path.completeCycle();
         return path;
     }
 
@@ -120,69 +113,170 @@ public class PhiX174kMerComposition {
 
     /**
      * Checks if the provided graph is a strongly connected (all vertices belong to a single strongly connected component).
+     * All vertices should be reachable from one vertex following outgoing edges and following inbound edges backwards,
+     * so the graph is not transposed.
      */
     private boolean isStronglyConected(DeBruijnGraph graph) {
-        Map<String, Boolean> visited = visitGraphVertices(graph);
-        for (boolean isVisited : visited.values()) {
-            if (!isVisited) {
-                return false;
-            }
+        return isReachable(graph, true) && isReachable(graph, false);
+    }
+
+    /**
+     * Iterate over graph vertices using DFS along outgoing edges (forward) or inbound edges, returns true if all
+     * vertices are visited. Visits are kept in a bit set by vertex index.
+     */
+    private boolean isReachable(DeBruijnGraph graph, boolean forward) {
+        int verticesNumber = graph.getVertices().size();
+        if (verticesNumber == 0) {
+            return false;
         }
+        BitSet visited = new BitSet(verticesNumber);
+        Vertex[] stack = new Vertex[verticesNumber];
+        int stackSize = 0;
+        stack[stackSize++] = graph.getVertices().iterator().next();
+        visited.set(stack[0].getIndex());
+        int visitedNumber = 1;
 
-        DeBruijnGraph transposedGraph = transposeGraph(graph);
-        Map<String, Boolean> visitedTransposed = visitGraphVertices(transposedGraph);
-        for (boolean isVisited : visitedTransposed.values()) {
-            if (!isVisited) {
-                return false;
+        while (stackSize > 0) {
+            Vertex vertex = stack[--stackSize];
+            for (Edge edge : forward ? vertex.getOutgoingEdges() : vertex.getInboundEdges()) {
+                Vertex next = graph.getVertexMap().get(
+                        forward ? edge.getDestinationVertexId() : edge.getSourceVertexId());
+                if (!visited.get(next.getIndex())) {
+                    visited.set(next.getIndex());
+                    visitedNumber++;
+                    stack[stackSize++] = next;
+                }
             }
         }
+        return visitedNumber == verticesNumber;
+    }
 
-        return true;
+    /**
+     * Builds Eulerian cycle of the k-mer graph, returns vertex ids of the cycle with the start
+     * vertex repeated at the end or an empty array if the graph has no Eulerian cycle. The cycle
+     * is built by {@link EulerTour} over the successors of the graph.
+     */
+    int[] buildPath(KmerGraph graph) {
+        if (!hasEulerCycle(graph)) {
+            return new int[0];
+        }
+        return EulerTour.of(graph).build(firstVertex(graph));
     }
 
     /**
-     * Creates transposed graph for the provided graph object.
+     * Checks if the k-mer graph has Eulerian cycle, see {@link #hasEulerCycle(DeBruijnGraph)}.
      */
-    private DeBruijnGraph transposeGraph(DeBruijnGraph graph) {
-        DeBruijnGraph result = new DeBruijnGraph();
-        for (Vertex vertex : graph.getVertices()) {
-            Vertex resultVertex = new Vertex(vertex.getId());
-            for (Edge inEdge : vertex.getInboundEdges()) {
-                resultVertex.addOutgoingEdge(
-                        new Edge(inEdge.getId(), inEdge.getName(), inEdge.getDestinationVertexId(), inEdge.getSourceVertexId()));
+    private boolean hasEulerCycle(KmerGraph graph) {
+        if (graph.getVerticesNumber() == 0) {
+            return false;
+        }
+        for (int v = 0; v < graph.getVertexIdBound(); v++) {
+            if (graph.isVertex(v)
+                    && (graph.getInDegree(v) == 0 || graph.getInDegree(v) != graph.getOutDegree(v))) {
+                return false;
             }
-            for (Edge outEdge : vertex.getOutgoingEdges()) {
-                resultVertex.addInboundEdge((
-                        new Edge(outEdge.getId(), outEdge.getName(), outEdge.getDestinationVertexId(), outEdge.getSourceVertexId())));
+        }
+        return isReachable(graph, true) && isReachable(graph, false);
+    }
+
+    /**
+     * Checks that all vertices are reachable from the first vertex following outgoing edges
+     * (forward) or inbound edges in the reverse direction.
+     */
+    private boolean isReachable(KmerGraph graph, boolean forward) {
+        BitSet visited = new BitSet(graph.getVertexIdBound());
+        int[] stack = new int[graph.getVerticesNumber()];
+        int stackSize = 0;
+        int visitedNumber = 1;
+        int start = firstVertex(graph);
+        visited.set(start);
+        stack[stackSize++] = start;
+        while (stackSize > 0) {
+            int vertex = stack[--stackSize];
+            int degree = forward ? graph.getOutDegree(vertex) : graph.getInDegree(vertex);
+            for (int i = 0; i < degree; i++) {
+                int next = forward
+                        ? graph.getSuccessor(vertex, i)
+                        : graph.getPredecessor(vertex, i);
+                if (!visited.get(next)) {
+                    visited.set(next);
+                    visitedNumber++;
+                    stack[stackSize++] = next;
+                }
             }
-            result.getVertexMap().put(vertex.getId(), resultVertex);
         }
+        return visitedNumber == graph.getVerticesNumber();
+    }
 
-        return result;
+    /**
+     * Returns the lowest vertex id of the non-empty graph.
+     */
+    private int firstVertex(KmerGraph graph) {
+        int vertex = 0;
+        while (!graph.isVertex(vertex)) {
+            vertex++;
+        }
+        return vertex;
     }
 
     /**
-     * Iterate over graph vertices using DFS.
+     * Builds packed De Bruijn graph with an edge for every k-mer, returns null if the k-mers
+     * cannot be packed.
      */
-    private Map<String, Boolean> visitGraphVertices(DeBruijnGraph graph) {
-        Map<String, Boolean> visited = new HashMap<>(graph.getVertices().size());
-        for (Vertex vertex : graph.getVertices()) {
-            visited.put(vertex.getId(), false);
+    PackedDeBruijnGraph buildPackedDeBruijnGraph(Collection<String> kmers) {
+        long[] codes = encodeKMers(kmers);
+        if (codes == null) {
+            return null;
         }
-        Deque<Vertex> stack = new LinkedList<>();
-        stack.add(graph.getVertices().iterator().next());
+        int k = kmers.iterator().next().length();
+        PackedDeBruijnGraph result = new PackedDeBruijnGraph(k, codes.length);
+        for (long code : codes) {
+            result.addKMer(code);
+        }
+        return result;
+    }
 
-        while (!stack.isEmpty()) {
-            Vertex vertex = stack.pop();
-            visited.put(vertex.getId(), true);
+    /**
+     * Builds succinct De Bruijn graph if the k-mers are distinct or packed one if some k-mers
+     * repeat, so the repeats stay parallel edges. Returns null if the k-mers cannot be packed,
+     * see {@link #buildPackedDeBruijnGraph(Collection)}.
+     */
+    KmerGraph buildKmerGraph(Collection<String> kmers) {
+        long[] codes = encodeKMers(kmers);
+        if (codes == null) {
+            return null;
+        }
+        int k = kmers.iterator().next().length();
+        SuccinctDeBruijnGraph result = new SuccinctDeBruijnGraph(k, codes.length);
+        for (long code : codes) {
+            if (!result.addKMer(code)) {
+                return buildPackedDeBruijnGraph(kmers);
+            }
+        }
+        return result;
+    }
 
-            for (Edge edge : vertex.getOutgoingEdges()) {
-                if (!visited.get(edge.getDestinationVertexId())) {
-                    stack.push(graph.getVertexMap().get(edge.getDestinationVertexId()));
-                }
+    /**
+     * Packs k-mers of the same length from 2 to {@link PackedDeBruijnGraph#MAX_K} consisting of
+     * nucleotides, otherwise returns null.
+     */
+    private long[] encodeKMers(Collection<String> kmers) {
+        if (kmers.isEmpty()) {
+            return null;
+        }
+        int k = kmers.iterator().next().length();
+        if (k < 2 || k > PackedDeBruijnGraph.MAX_K) {
+            return null;
+        }
+        long[] result = new long[kmers.size()];
+        int i = 0;
+        for (String kmer : kmers) {
+            if (kmer.length() != k || !PackedDeBruijnGraph.isEncodable(kmer, 0, k)) {
+                return null;
             }
+            result[i++] = PackedDeBruijnGraph.encode(kmer, 0, k);
         }
-        return visited;
+        return result;
     }
 
     DeBruijnGraph buildDeBruijnGraph(Collection<String> kmers) {
@@ -230,14 +324,14 @@ public class PhiX174kMerComposition {
             Edge edge = new Edge(edgeCounter++, kmer, leftPart, rightPart);
             if (leftPart.equals(rightPart)) {
                 // Self-loop edge
-                Vertex vertex = vertexMap.computeIfAbsent(leftPart, k -> new Vertex(leftPart));
+                Vertex vertex = vertexMap.computeIfAbsent(leftPart, k -> new Vertex(leftPart, vertexMap.size()));
                 vertex.addOutgoingEdge(edge);
                 vertex.addInboundEdge(edge);
             } else {
-                Vertex leftVertex = vertexMap.computeIfAbsent(leftPart, k -> new Vertex(leftPart));
+                Vertex leftVertex = vertexMap.computeIfAbsent(leftPart, k -> new Vertex(leftPart, vertexMap.size()));
                 leftVertex.addOutgoingEdge(edge);
 
-                Vertex rightVertex = vertexMap.computeIfAbsent(rightPart, k -> new Vertex(rightPart));
+                Vertex rightVertex = vertexMap.computeIfAbsent(rightPart, k -> new Vertex(rightPart, vertexMap.size()));
                 rightVertex.addInboundEdge(edge);
             }
         }
@@ -256,11 +350,14 @@ public class PhiX174kMerComposition {
      */
     static class Vertex {
         private final String id;
+        // Dense index of the vertex in the graph in the order of creation.
+        private final int index;
         private final List<Edge> inboundEdges;
         private final List<Edge> outgoingEdges;
 
-        Vertex(String id) {
+        Vertex(String id, int index) {
             this.id = id;
+            this.index = index;
             inboundEdges = new ArrayList<>();
             outgoingEdges = new ArrayList<>();
         }
@@ -269,6 +366,10 @@ public class PhiX174kMerComposition {
             return id;
         }
 
+        int getIndex() {
+            return index;
+        }
+
         List<Edge> getInboundEdges() {
             return inboundEdges;
         }
@@ -427,4 +528,616 @@ public class PhiX174kMerComposition {
             return nextStep;
         }
     }
+
+    /**
+     * Hierholzer algorithm over a graph kept in the compressed sparse row form: successors of
+     * the vertex v are targets[offsets[v]] to targets[offsets[v + 1] - 1]. A cursor per vertex
+     * points to its next unused edge, so every edge is looked at once and the tour takes
+     * O(V + E) time in int arrays only.
+     */
+    static class EulerTour {
+        private final int[] offsets;
+        private final int[] targets;
+
+        EulerTour(int[] offsets, int[] targets) {
+            this.offsets = offsets;
+            this.targets = targets;
+        }
+
+        /**
+         * Builds the graph from successors of the k-mer graph, vertex ids stay the same and ids
+         * which are not vertices get no edges.
+         */
+        static EulerTour of(KmerGraph graph) {
+            int[] offsets = new int[graph.getVertexIdBound() + 1];
+            for (int v = 0; v < graph.getVertexIdBound(); v++) {
+                offsets[v + 1] = offsets[v] + (graph.isVertex(v) ? graph.getOutDegree(v) : 0);
+            }
+            int[] targets = new int[offsets[offsets.length - 1]];
+            for (int v = 0; v < graph.getVertexIdBound(); v++) {
+                for (int i = 0; i < offsets[v + 1] - offsets[v]; i++) {
+                    targets[offsets[v] + i] = graph.getSuccessor(v, i);
+                }
+            }
+            return new EulerTour(offsets, targets);
+        }
+
+        int getVerticesNumber() {
+            return offsets.length - 1;
+        }
+
+        int getEdgesNumber() {
+            return offsets[offsets.length - 1];
+        }
+
+        /**
+         * Returns vertices of the Eulerian cycle from the start vertex, the start vertex is
+         * repeated at the end. The graph should be balanced and strongly connected, otherwise
+         * only the cycle through the start vertex is returned.
+         */
+        int[] build(int start) {
+            int[] cursors = Arrays.copyOf(offsets, getVerticesNumber());
+            // The stack grows from the beginning of the array and the cycle from its end. Every
+            // vertex on them except the start came through its own edge, so they never overlap.
+            int[] result = new int[getEdgesNumber() + 1];
+            int stackSize = 0;
+            int cycleStart = result.length;
+            result[stackSize++] = start;
+            while (stackSize > 0) {
+                int vertex = result[stackSize - 1];
+                if (cursors[vertex] < offsets[vertex + 1]) {
+                    result[stackSize++] = targets[cursors[vertex]++];
+                } else {
+                    stackSize--;
+                    result[--cycleStart] = vertex;
+                }
+            }
+            return cycleStart == 0 ? result : Arrays.copyOfRange(result, cycleStart, result.length);
+        }
+    }
+
+    /**
+     * Traversal view of the packed De Bruijn graphs: vertices have int ids and neighbours of a
+     * vertex are returned by index, one per edge.
+     */
+    interface KmerGraph {
+        int getVerticesNumber();
+
+        int getEdgesNumber();
+
+        /**
+         * Returns the bound of vertex ids, ids are from 0 to the bound and not every id below it
+         * is a vertex, see {@link #isVertex(int)}.
+         */
+        int getVertexIdBound();
+
+        boolean isVertex(int vertex);
+
+        int getOutDegree(int vertex);
+
+        int getInDegree(int vertex);
+
+        int getSuccessor(int vertex, int i);
+
+        int getPredecessor(int vertex, int i);
+
+        /**
+         * Returns the last base of the vertex (k-1)-mer.
+         */
+        char getLastBase(int vertex);
+    }
+
+    /**
+     * Hash table from packed k-mers to int values with open addressing and linear probing, keys
+     * and values are kept in primitive arrays without boxing. Keys should be non-negative (-1
+     * marks an empty slot) and values non-negative (-1 means no value). The table doubles when
+     * it gets more than half full.
+     */
+    static class KmerTable {
+        private static final long EMPTY = -1;
+        private static final int MAX_CAPACITY = 1 << 30;
+
+        private long[] keys;
+        private int[] values;
+        private int bits;
+        private int size;
+
+        /**
+         * Creates the table which takes the expected number of keys without a resize.
+         */
+        KmerTable(int expectedSize) {
+            int capacity = 2;
+            while (capacity < MAX_CAPACITY && capacity < 2L * expectedSize) {
+                capacity <<= 1;
+            }
+            allocate(capacity);
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            values = new int[capacity];
+            bits = Integer.numberOfTrailingZeros(capacity);
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Returns the value of the key or -1.
+         */
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int slot = slot(key); keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+            }
+            return -1;
+        }
+
+        boolean containsKey(long key) {
+            return get(key) >= 0;
+        }
+
+        /**
+         * Puts the value if the table has no such key, returns the existing value or -1 if the
+         * value has been put.
+         */
+        int putIfAbsent(long key, int value) {
+            int mask = keys.length - 1;
+            int slot = slot(key);
+            for (; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            if (++size > keys.length / 2) {
+                resize();
+            }
+            return -1;
+        }
+
+        private int slot(long key) {
+            // Fibonacci hashing: the high bits of the product depend on all bits of the key.
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - bits));
+        }
+
+        private void resize() {
+            if (keys.length == MAX_CAPACITY) {
+                throw new IllegalStateException("Too many k-mers: " + size);
+            }
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            allocate(keys.length * 2);
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = slot(oldKeys[i]);
+                    while (keys[slot] != EMPTY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * De Bruijn graph of k-mers packed into longs, 2 bits per base. k is at most 32, so the code
+     * of a vertex takes at most 62 bits and is never negative. A vertex is the (k-1)-mer:
+     * the prefix of the k-mer is kmer >>> 2 and the suffix is kmer with the highest base masked
+     * out, no substrings are created. Vertices get dense int ids, edges are kept in int arrays
+     * and adjacency is built in the compressed sparse row form on demand.
+     */
+    static class PackedDeBruijnGraph implements KmerGraph {
+        static final int MAX_K = 32;
+        static final char[] BASES = {'A', 'C', 'G', 'T'};
+
+        private final int k;
+        private final long vertexMask;
+        private final KmerTable vertexIds;
+        private long[] vertexKmers;
+        private int verticesNumber;
+        private int[] edgeSources;
+        private int[] edgeTargets;
+        private int edgesNumber;
+        // Edge ids of every vertex from offsets[v] to offsets[v + 1], null if not built yet.
+        private int[] outgoingOffsets;
+        private int[] outgoingEdges;
+        private int[] inboundOffsets;
+        private int[] inboundEdges;
+
+        /**
+         * Creates the graph which takes the expected number of k-mers without a resize.
+         */
+        PackedDeBruijnGraph(int k, int expectedKmers) {
+            if (k < 2 || k > MAX_K) {
+                throw new IllegalArgumentException("k should be from 2 to " + MAX_K + ": " + k);
+            }
+            this.k = k;
+            this.vertexMask = (1L << (2 * (k - 1))) - 1;
+            int capacity = Math.max(16, expectedKmers);
+            vertexIds = new KmerTable(capacity);
+            vertexKmers = new long[capacity];
+            edgeSources = new int[capacity];
+            edgeTargets = new int[capacity];
+        }
+
+        /**
+         * Checks that the substring is not longer than {@link #MAX_K} and has only A, C, G, T,
+         * so it can be packed.
+         */
+        static boolean isEncodable(CharSequence string, int from, int length) {
+            if (length > MAX_K) {
+                return false;
+            }
+            for (int i = from; i < from + length; i++) {
+                if (encodeBase(string.charAt(i)) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Packs the substring, the first base goes to the highest bits. Every 64-bit value is the
+         * code of some 32-mer, so the substring should be checked by
+         * {@link #isEncodable(CharSequence, int, int)} first.
+         */
+        static long encode(CharSequence string, int from, int length) {
+            long result = 0;
+            for (int i = from; i < from + length; i++) {
+                result = result << 2 | encodeBase(string.charAt(i));
+            }
+            return result;
+        }
+
+        static int encodeBase(char symbol) {
+            switch (symbol) {
+                case 'A':
+                    return 0;
+                case 'C':
+                    return 1;
+                case 'G':
+                    return 2;
+                case 'T':
+                    return 3;
+                default:
+                    return -1;
+            }
+        }
+
+        static String decode(long code, int length) {
+            char[] result = new char[length];
+            for (int i = length - 1; i >= 0; i--) {
+                result[i] = BASES[(int) (code & 3)];
+                code >>>= 2;
+            }
+            return new String(result);
+        }
+
+        void addKMer(long kmer) {
+            int source = addVertex(kmer >>> 2);
+            int target = addVertex(kmer & vertexMask);
+            if (edgesNumber == edgeSources.length) {
+                edgeSources = Arrays.copyOf(edgeSources, edgesNumber * 2);
+                edgeTargets = Arrays.copyOf(edgeTargets, edgesNumber * 2);
+            }
+            edgeSources[edgesNumber] = source;
+            edgeTargets[edgesNumber] = target;
+            edgesNumber++;
+            outgoingOffsets = null;
+            inboundOffsets = null;
+        }
+
+        private int addVertex(long vertex) {
+            int id = vertexIds.putIfAbsent(vertex, verticesNumber);
+            if (id >= 0) {
+                return id;
+            }
+            if (verticesNumber == vertexKmers.length) {
+                vertexKmers = Arrays.copyOf(vertexKmers, verticesNumber * 2);
+            }
+            vertexKmers[verticesNumber] = vertex;
+            return verticesNumber++;
+        }
+
+        @Override
+        public int getVerticesNumber() {
+            return verticesNumber;
+        }
+
+        @Override
+        public int getEdgesNumber() {
+            return edgesNumber;
+        }
+
+        /**
+         * Returns the number of vertices, ids are dense.
+         */
+        @Override
+        public int getVertexIdBound() {
+            return verticesNumber;
+        }
+
+        @Override
+        public boolean isVertex(int vertex) {
+            return vertex < verticesNumber;
+        }
+
+        /**
+         * Returns id of the vertex with the packed (k-1)-mer or -1.
+         */
+        int getVertex(long vertex) {
+            return vertexIds.get(vertex);
+        }
+
+        long getVertexKmer(int vertex) {
+            return vertexKmers[vertex];
+        }
+
+        String getVertexId(int vertex) {
+            return decode(vertexKmers[vertex], k - 1);
+        }
+
+        /**
+         * Returns the last base of the vertex (k-1)-mer.
+         */
+        @Override
+        public char getLastBase(int vertex) {
+            return BASES[(int) (vertexKmers[vertex] & 3)];
+        }
+
+        int getEdgeSource(int edge) {
+            return edgeSources[edge];
+        }
+
+        int getEdgeTarget(int edge) {
+            return edgeTargets[edge];
+        }
+
+        @Override
+        public int getOutDegree(int vertex) {
+            buildAdjacency();
+            return outgoingOffsets[vertex + 1] - outgoingOffsets[vertex];
+        }
+
+        @Override
+        public int getInDegree(int vertex) {
+            buildAdjacency();
+            return inboundOffsets[vertex + 1] - inboundOffsets[vertex];
+        }
+
+        @Override
+        public int getSuccessor(int vertex, int i) {
+            return getEdgeTarget(getOutgoingEdge(vertex, i));
+        }
+
+        @Override
+        public int getPredecessor(int vertex, int i) {
+            return getEdgeSource(getInboundEdge(vertex, i));
+        }
+
+        /**
+         * Returns id of the i-th outgoing edge of the vertex.
+         */
+        int getOutgoingEdge(int vertex, int i) {
+            buildAdjacency();
+            return outgoingEdges[outgoingOffsets[vertex] + i];
+        }
+
+        /**
+         * Returns id of the i-th inbound edge of the vertex.
+         */
+        int getInboundEdge(int vertex, int i) {
+            buildAdjacency();
+            return inboundEdges[inboundOffsets[vertex] + i];
+        }
+
+        private void buildAdjacency() {
+            if (outgoingOffsets != null) {
+                return;
+            }
+            outgoingOffsets = new int[verticesNumber + 1];
+            inboundOffsets = new int[verticesNumber + 1];
+            for (int e = 0; e < edgesNumber; e++) {
+                outgoingOffsets[edgeSources[e] + 1]++;
+                inboundOffsets[edgeTargets[e] + 1]++;
+            }
+            for (int v = 0; v < verticesNumber; v++) {
+                outgoingOffsets[v + 1] += outgoingOffsets[v];
+                inboundOffsets[v + 1] += inboundOffsets[v];
+            }
+            outgoingEdges = new int[edgesNumber];
+            inboundEdges = new int[edgesNumber];
+            int[] outgoingPosition = Arrays.copyOf(outgoingOffsets, verticesNumber);
+            int[] inboundPosition = Arrays.copyOf(inboundOffsets, verticesNumber);
+            for (int e = 0; e < edgesNumber; e++) {
+                outgoingEdges[outgoingPosition[edgeSources[e]]++] = e;
+                inboundEdges[inboundPosition[edgeTargets[e]]++] = e;
+            }
+        }
+    }
+
+    /**
+     * De Bruijn graph of distinct packed k-mers without edge lists. Vertices are packed (k-1)-mers
+     * in an open addressing table with linear probing and the slot of a vertex is its id, so ids
+     * are not dense, see {@link #getVertexIdBound()}. Next to the key a slot has one byte of edge
+     * bits: bit b of the low half is set if there is the edge to the vertex ending with base b,
+     * bit b of the high half if there is the edge from the vertex starting with base b.
+     * Neighbours are found by a shift and a lookup in the table. A slot takes 9 bytes and the
+     * table is from 3/8 to 3/4 full after it has grown, so a vertex takes 12 to 24 bytes.
+     */
+    static class SuccinctDeBruijnGraph implements KmerGraph {
+        private static final long EMPTY = -1;
+        private static final int MAX_CAPACITY = 1 << 30;
+
+        private final int k;
+        private final long vertexMask;
+        private long[] keys;
+        private byte[] edgeBits;
+        private int bits;
+        private int verticesNumber;
+        private int edgesNumber;
+
+        /**
+         * Creates the graph which takes the expected number of k-mers without a resize.
+         */
+        SuccinctDeBruijnGraph(int k, int expectedKmers) {
+            if (k < 2 || k > PackedDeBruijnGraph.MAX_K) {
+                throw new IllegalArgumentException(
+                        "k should be from 2 to " + PackedDeBruijnGraph.MAX_K + ": " + k);
+            }
+            this.k = k;
+            this.vertexMask = (1L << (2 * (k - 1))) - 1;
+            // Distinct k-mers have at most one vertex more than k-mers.
+            int capacity = 16;
+            while (capacity < MAX_CAPACITY && 3L * capacity < 4L * (expectedKmers + 1)) {
+                capacity <<= 1;
+            }
+            allocate(capacity);
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            edgeBits = new byte[capacity];
+            bits = Integer.numberOfTrailingZeros(capacity);
+        }
+
+        /**
+         * Adds the edge of the packed k-mer, returns false if the graph already has it. The table
+         * grows before both vertices are added, so the source slot stays valid.
+         */
+        boolean addKMer(long kmer) {
+            if (4L * (verticesNumber + 2) > 3L * keys.length) {
+                resize();
+            }
+            int source = addVertex(kmer >>> 2);
+            int target = addVertex(kmer & vertexMask);
+            int outgoingBit = 1 << (int) (kmer & 3);
+            if ((edgeBits[source] & outgoingBit) != 0) {
+                return false;
+            }
+            edgeBits[source] |= outgoingBit;
+            edgeBits[target] |= 1 << (4 + (int) (kmer >>> (2 * (k - 1))));
+            edgesNumber++;
+            return true;
+        }
+
+        private int addVertex(long vertex) {
+            int slot = findSlot(vertex);
+            if (keys[slot] == EMPTY) {
+                keys[slot] = vertex;
+                verticesNumber++;
+            }
+            return slot;
+        }
+
+        /**
+         * Returns the slot of the vertex or the empty slot where it should be put.
+         */
+        private int findSlot(long vertex) {
+            int mask = keys.length - 1;
+            // Fibonacci hashing: the high bits of the product depend on all bits of the key.
+            int slot = (int) ((vertex * 0x9E3779B97F4A7C15L) >>> (64 - bits));
+            while (keys[slot] != EMPTY && keys[slot] != vertex) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void resize() {
+            if (keys.length == MAX_CAPACITY) {
+                throw new IllegalStateException("Too many vertices: " + verticesNumber);
+            }
+            long[] oldKeys = keys;
+            byte[] oldEdgeBits = edgeBits;
+            allocate(keys.length * 2);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = findSlot(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    edgeBits[slot] = oldEdgeBits[i];
+                }
+            }
+        }
+
+        @Override
+        public int getVerticesNumber() {
+            return verticesNumber;
+        }
+
+        @Override
+        public int getEdgesNumber() {
+            return edgesNumber;
+        }
+
+        @Override
+        public int getVertexIdBound() {
+            return keys.length;
+        }
+
+        @Override
+        public boolean isVertex(int vertex) {
+            return keys[vertex] != EMPTY;
+        }
+
+        /**
+         * Returns id of the vertex with the packed (k-1)-mer or -1.
+         */
+        int getVertex(long vertex) {
+            int slot = findSlot(vertex);
+            return keys[slot] == EMPTY ? -1 : slot;
+        }
+
+        String getVertexId(int vertex) {
+            return PackedDeBruijnGraph.decode(keys[vertex], k - 1);
+        }
+
+        @Override
+        public char getLastBase(int vertex) {
+            return PackedDeBruijnGraph.BASES[(int) (keys[vertex] & 3)];
+        }
+
+        @Override
+        public int getOutDegree(int vertex) {
+            return Integer.bitCount(edgeBits[vertex] & 0xF);
+        }
+
+        @Override
+        public int getInDegree(int vertex) {
+            return Integer.bitCount(edgeBits[vertex] >>> 4 & 0xF);
+        }
+
+        /**
+         * Returns the i-th successor of the vertex in the order of the appended base.
+         */
+        @Override
+        public int getSuccessor(int vertex, int i) {
+            int base = nthBit(edgeBits[vertex] & 0xF, i);
+            return getVertex((keys[vertex] << 2 | base) & vertexMask);
+        }
+
+        /**
+         * Returns the i-th predecessor of the vertex in the order of the prepended base.
+         */
+        @Override
+        public int getPredecessor(int vertex, int i) {
+            int base = nthBit(edgeBits[vertex] >>> 4 & 0xF, i);
+            return getVertex((long) base << (2 * (k - 2)) | keys[vertex] >>> 2);
+        }
+
+        private static int nthBit(int bits, int n) {
+            for (; n > 0; n--) {
+                bits &= bits - 1;
+            }
+            return Integer.numberOfTrailingZeros(bits);
+        }
+    }
 }
@@ -5,6 +5,7 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -23,12 +24,15 @@ import java.util.StringTokenizer;
 public class BubbleDetection {
     public static void main(String... args) {
         Scanner stdin = new Scanner(new BufferedInputStream(System.in));
-        Set<String> reads = new HashSet<>();
+        PackedReadStore reads = new PackedReadStore();
         int k = stdin.nextInt();
         int t = stdin.nextInt();
 
         while (stdin.hasNext()) {
-            reads.add(stdin.nextLine());
+            String read = stdin.nextLine();
+            if (!read.isEmpty()) {
+                reads.add(read);
+            }
         }
 
         BubbleDetection solver = new BubbleDetection();
@@ -36,9 +40,16 @@ public class BubbleDetection {
     }
 
     int countBubbles(int k, int t, Collection<String> reads) {
+        return countBubbles(k, t, PackedReadStore.of(reads));
+    }
+
+    int countBubbles(int k, int t, PackedReadStore reads) {
+        if (k <= SuccinctDeBruijnGraph.MAX_K && !reads.hasNonDnaSymbols()) {
+            return countBubbles(t, buildSuccinctDeBruijnGraph(reads, k));
+        }
         Set<String> kmers = new HashSet<>();
-        for (String read : reads) {
-            generateKmers(read, k, kmers);
+        for (int i = 0; i < reads.size(); i++) {
+            generateKmers(reads.getRead(i), k, kmers);
         }
 
         DeBruijnGraph deBruijnGraph = buildDeBruijnGraph(kmers);
@@ -57,6 +68,60 @@ public class BubbleDetection {
         return bubbles;
     }
 
+    /**
+     * Counts bubbles of the succinct graph, same as {@link #countBubbles(int, int, PackedReadStore)}
+     * but traversals keep vertex ids in int arrays and are grouped by the end vertex id.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private int countBubbles(int t, SuccinctDeBruijnGraph graph) {
+        List<PackedTraversal>[] traversals = new List[graph.getVertexIdBound()];
+        for (int vertex = 0; vertex < graph.getVertexIdBound(); vertex++) {
+            if (graph.isVertex(vertex) && graph.getOutDegree(vertex) > 1) {
+                buildVerticesTraversals(t, vertex, graph, traversals);
+            }
+        }
+        int bubbles = 0;
+        for (List<PackedTraversal> vertexTraversals : traversals) {
+            if (vertexTraversals != null && vertexTraversals.size() > 1) {
+                for (int i = 0; i < vertexTraversals.size() - 1; i++) {
+                    PackedTraversal traversal1 = vertexTraversals.get(i);
+                    for (int j = i + 1; j < vertexTraversals.size(); j++) {
+                        if (traversal1.isDisjoint(vertexTraversals.get(j))) {
+                            bubbles++;
+                        }
+                    }
+                }
+            }
+        }
+        return bubbles;
+    }
+
+    private void buildVerticesTraversals(
+            int t, int source, SuccinctDeBruijnGraph graph, List<PackedTraversal>[] traversals) {
+        List<PackedTraversal> levelTraversals = new ArrayList<>();
+        levelTraversals.add(new PackedTraversal(source));
+
+        for (int i = 0; i < t && !levelTraversals.isEmpty(); i++) {
+            List<PackedTraversal> nextLevel = new ArrayList<>();
+
+            for (PackedTraversal vertexTraversal : levelTraversals) {
+                int vertex = vertexTraversal.getVertex();
+                for (int j = 0; j < graph.getOutDegree(vertex); j++) {
+                    int destination = graph.getSuccessor(vertex, j);
+                    if (!vertexTraversal.contains(destination)) {
+                        PackedTraversal traversal = vertexTraversal.append(destination);
+                        nextLevel.add(traversal);
+                        if (traversals[destination] == null) {
+                            traversals[destination] = new ArrayList<>();
+                        }
+                        traversals[destination].add(traversal);
+                    }
+                }
+            }
+            levelTraversals = nextLevel;
+        }
+    }
+
     private int countDisjoints(List<VertexTraversal> vertexTraversals) {
         int disjointsCount = 0;
         for (int i = 0; i < vertexTraversals.size() - 1; i++) {
@@ -100,12 +165,51 @@ public class BubbleDetection {
     }
 
     /**
-     * Creates k-mers of size k from the provided read and puts them into kmers set.
+     * Creates k-mers of size k from the provided read and puts them into kmers set. K-mers with
+     * the unknown base N are skipped as the succinct graph skips masked bases.
      */
     private void generateKmers(String read, int k, Set<String> kmers) {
-        for (int i = 0; i + k <= read.length(); i++) {
-            kmers.add(read.substring(i, i + k));
+        int unmasked = 0;
+        for (int i = 0; i < read.length(); i++) {
+            if (read.charAt(i) == 'N') {
+                unmasked = 0;
+            } else if (++unmasked >= k) {
+                kmers.add(read.substring(i - k + 1, i + 1));
+            }
+        }
+    }
+
+    /**
+     * Builds succinct De Bruijn graph of distinct k-mers of the reads, k-mer codes are rolled
+     * along the read and repeated k-mers are dropped by the graph. Masked bases are unknown, so
+     * k-mers with them are skipped: a k-mer is added only when the last k bases are unmasked.
+     * The reads should have no symbols other than A, C, G, T and N.
+     */
+    private SuccinctDeBruijnGraph buildSuccinctDeBruijnGraph(PackedReadStore reads, int k) {
+        int expectedKmers = 0;
+        for (int read = 0; read < reads.size(); read++) {
+            expectedKmers += Math.max(0, reads.length(read) - k + 1);
+        }
+        SuccinctDeBruijnGraph result = new SuccinctDeBruijnGraph(k, expectedKmers);
+        long mask = -1L >>> (Long.SIZE - 2 * k);
+        for (int read = 0; read < reads.size(); read++) {
+            long kmer = 0;
+            // Number of bases since the last masked base.
+            int unmasked = 0;
+            int masked = reads.nextMasked(read, 0);
+            for (int i = 0; i < reads.length(read); i++) {
+                if (i == masked) {
+                    unmasked = 0;
+                    masked = reads.nextMasked(read, i + 1);
+                    continue;
+                }
+                kmer = (kmer << 2 | reads.baseAt(read, i)) & mask;
+                if (++unmasked >= k) {
+                    result.addKMer(kmer);
+                }
+            }
         }
+        return result;
     }
 
     private DeBruijnGraph buildDeBruijnGraph(Collection<String> kmers) {
@@ -286,6 +390,244 @@ public class BubbleDetection {
         }
     }
 
+    /**
+     * Path in {@link SuccinctDeBruijnGraph} from the source vertex, vertex ids in the path order.
+     */
+    static class PackedTraversal {
+        private final int[] vertices;
+
+        PackedTraversal(int vertex) {
+            this.vertices = new int[] {vertex};
+        }
+
+        private PackedTraversal(int[] vertices) {
+            this.vertices = vertices;
+        }
+
+        int getSource() {
+            return vertices[0];
+        }
+
+        int getVertex() {
+            return vertices[vertices.length - 1];
+        }
+
+        boolean contains(int vertex) {
+            for (int v : vertices) {
+                if (v == vertex) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        PackedTraversal append(int vertex) {
+            int[] newVertices = Arrays.copyOf(vertices, vertices.length + 1);
+            newVertices[vertices.length] = vertex;
+            return new PackedTraversal(newVertices);
+        }
+
+        /**
+         * Checks that both paths go from the same source to the same vertex and share no other
+         * vertices, see {@link VertexTraversal#isDisjoint(VertexTraversal)}.
+         */
+        boolean isDisjoint(PackedTraversal other) {
+            if (getSource() != other.getSource() || getVertex() != other.getVertex()) {
+                return false;
+            }
+            int countEqualVertices = 0;
+            for (int otherVertex : other.vertices) {
+                if (contains(otherVertex)) {
+                    countEqualVertices++;
+                }
+            }
+            return countEqualVertices == 2;
+        }
+    }
+
+    /**
+     * De Bruijn graph of distinct k-mers packed into longs, 2 bits per base, without edge lists.
+     * k is at most 32, so a vertex code is never negative. Vertices are packed (k-1)-mers in an
+     * open addressing table with linear probing and the slot of a vertex is its id, so ids are
+     * not dense, see {@link #getVertexIdBound()}. Next to the key a slot has one byte of edge
+     * bits: bit b of the low half is set if there is the edge to the vertex ending with base b,
+     * bit b of the high half if there is the edge from the vertex starting with base b.
+     * Neighbours are found by a shift and a lookup in the table. A slot takes 9 bytes and the
+     * table is from 3/8 to 3/4 full after it has grown, so a vertex takes 12 to 24 bytes.
+     */
+    static class SuccinctDeBruijnGraph {
+        static final int MAX_K = 32;
+        private static final char[] BASES = {'A', 'C', 'G', 'T'};
+        private static final long EMPTY = -1;
+        private static final int MAX_CAPACITY = 1 << 30;
+
+        private final int k;
+        private final long vertexMask;
+        private long[] keys;
+        private byte[] edgeBits;
+        private int bits;
+        private int verticesNumber;
+        private int edgesNumber;
+
+        /**
+         * Creates the graph which takes the expected number of k-mers without a resize.
+         */
+        SuccinctDeBruijnGraph(int k, int expectedKmers) {
+            if (k < 2 || k > MAX_K) {
+                throw new IllegalArgumentException("k should be from 2 to " + MAX_K + ": " + k);
+            }
+            this.k = k;
+            this.vertexMask = (1L << (2 * (k - 1))) - 1;
+            // Distinct k-mers have at most one vertex more than k-mers.
+            int capacity = 16;
+            while (capacity < MAX_CAPACITY && 3L * capacity < 4L * (expectedKmers + 1)) {
+                capacity <<= 1;
+            }
+            allocate(capacity);
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            edgeBits = new byte[capacity];
+            bits = Integer.numberOfTrailingZeros(capacity);
+        }
+
+        /**
+         * Adds the edge of the packed k-mer, returns false if the graph already has it. The table
+         * grows before both vertices are added, so the source slot stays valid.
+         */
+        boolean addKMer(long kmer) {
+            if (4L * (verticesNumber + 2) > 3L * keys.length) {
+                resize();
+            }
+            int source = addVertex(kmer >>> 2);
+            int target = addVertex(kmer & vertexMask);
+            int outgoingBit = 1 << (int) (kmer & 3);
+            if ((edgeBits[source] & outgoingBit) != 0) {
+                return false;
+            }
+            edgeBits[source] |= outgoingBit;
+            edgeBits[target] |= 1 << (4 + (int) (kmer >>> (2 * (k - 1))));
+            edgesNumber++;
+            return true;
+        }
+
+        private int addVertex(long vertex) {
+            int slot = findSlot(vertex);
+            if (keys[slot] == EMPTY) {
+                keys[slot] = vertex;
+                verticesNumber++;
+            }
+            return slot;
+        }
+
+        /**
+         * Returns the slot of the vertex or the empty slot where it should be put.
+         */
+        private int findSlot(long vertex) {
+            int mask = keys.length - 1;
+            // Fibonacci hashing: the high bits of the product depend on all bits of the key.
+            int slot = (int) ((vertex * 0x9E3779B97F4A7C15L) >>> (64 - bits));
+            while (keys[slot] != EMPTY && keys[slot] != vertex) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void resize() {
+            if (keys.length == MAX_CAPACITY) {
+                throw new IllegalStateException("Too many vertices: " + verticesNumber);
+            }
+            long[] oldKeys = keys;
+            byte[] oldEdgeBits = edgeBits;
+            allocate(keys.length * 2);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = findSlot(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    edgeBits[slot] = oldEdgeBits[i];
+                }
+            }
+        }
+
+        int getVerticesNumber() {
+            return verticesNumber;
+        }
+
+        int getEdgesNumber() {
+            return edgesNumber;
+        }
+
+        /**
+         * Returns the bound of vertex ids, ids are from 0 to the bound and not every id below it
+         * is a vertex, see {@link #isVertex(int)}.
+         */
+        int getVertexIdBound() {
+            return keys.length;
+        }
+
+        /**
+         * Checks if the id is a vertex and not an empty slot.
+         */
+        boolean isVertex(int vertex) {
+            return keys[vertex] != EMPTY;
+        }
+
+        /**
+         * Returns id of the vertex with the packed (k-1)-mer or -1.
+         */
+        int getVertex(long vertex) {
+            int slot = findSlot(vertex);
+            return keys[slot] == EMPTY ? -1 : slot;
+        }
+
+        String getVertexId(int vertex) {
+            char[] result = new char[k - 1];
+            long code = keys[vertex];
+            for (int i = k - 2; i >= 0; i--) {
+                result[i] = BASES[(int) (code & 3)];
+                code >>>= 2;
+            }
+            return new String(result);
+        }
+
+        char getLastBase(int vertex) {
+            return BASES[(int) (keys[vertex] & 3)];
+        }
+
+        int getOutDegree(int vertex) {
+            return Integer.bitCount(edgeBits[vertex] & 0xF);
+        }
+
+        int getInDegree(int vertex) {
+            return Integer.bitCount(edgeBits[vertex] >>> 4 & 0xF);
+        }
+
+        /**
+         * Returns the i-th successor of the vertex in the order of the appended base.
+         */
+        int getSuccessor(int vertex, int i) {
+            int base = nthBit(edgeBits[vertex] & 0xF, i);
+            return getVertex((keys[vertex] << 2 | base) & vertexMask);
+        }
+
+        /**
+         * Returns the i-th predecessor of the vertex in the order of the prepended base.
+         */
+        int getPredecessor(int vertex, int i) {
+            int base = nthBit(edgeBits[vertex] >>> 4 & 0xF, i);
+            return getVertex((long) base << (2 * (k - 2)) | keys[vertex] >>> 2);
+        }
+
+        private static int nthBit(int bits, int n) {
+            for (; n > 0; n--) {
+                bits &= bits - 1;
+            }
+            return Integer.numberOfTrailingZeros(bits);
+        }
+    }
+
     static class FastScanner {
         private BufferedReader reader;
         private StringTokenizer tokenizer;
@@ -306,4 +648,150 @@ public class BubbleDetection {
             return Integer.parseInt(next());
         }
     }
+
+    /**
+     * Read store keeping all bases in a single long array, 2 bits per base (A, C, G, T), reads
+     * are addressed by offset and length arrays (struct of arrays). Other symbols (usually N)
+     * are masked: the base positions and the original symbols are kept in sorted arrays, a read
+     * refers to the range of its masked positions, so reads without masked bases are decoded
+     * without a lookup. A base takes 2 bits instead of 2 bytes of a String.
+     */
+    static class PackedReadStore {
+        private static final char[] SYMBOLS = {'A', 'C', 'G', 'T'};
+        private static final int BASES_PER_WORD = 32;
+
+        private long[] bases = new long[16];
+        private long[] offsets = new long[17];
+        private int[] lengths = new int[16];
+        // Masked positions of the reads from maskedFrom[read] to maskedFrom[read + 1].
+        private int[] maskedFrom = new int[17];
+        private long[] maskedPositions = new long[0];
+        private byte[] maskedSymbols = new byte[0];
+        private int maskedNumber;
+        private int size;
+
+        static PackedReadStore of(Collection<? extends CharSequence> reads) {
+            PackedReadStore store = new PackedReadStore();
+            for (CharSequence read : reads) {
+                store.add(read);
+            }
+            return store;
+        }
+
+        /**
+         * Appends the read, returns its index.
+         */
+        int add(CharSequence read) {
+            if (size == lengths.length) {
+                offsets = Arrays.copyOf(offsets, size * 2 + 1);
+                maskedFrom = Arrays.copyOf(maskedFrom, size * 2 + 1);
+                lengths = Arrays.copyOf(lengths, size * 2);
+            }
+            long offset = offsets[size];
+            long end = offset + read.length();
+            int words = (int) ((end + BASES_PER_WORD - 1) / BASES_PER_WORD);
+            if (words > bases.length) {
+                bases = Arrays.copyOf(bases, Math.max(words, bases.length * 2));
+            }
+            for (int i = 0; i < read.length(); i++) {
+                char symbol = read.charAt(i);
+                int code = encode(symbol);
+                if (code < 0) {
+                    addMasked(offset + i, symbol);
+                    code = 0;
+                }
+                long position = offset + i;
+                bases[(int) (position / BASES_PER_WORD)] |=
+                        (long) code << (2 * (position % BASES_PER_WORD));
+            }
+            lengths[size] = read.length();
+            offsets[size + 1] = end;
+            maskedFrom[size + 1] = maskedNumber;
+            return size++;
+        }
+
+        private void addMasked(long position, char symbol) {
+            if (maskedNumber == maskedPositions.length) {
+                maskedPositions = Arrays.copyOf(maskedPositions, Math.max(16, maskedNumber * 2));
+                maskedSymbols = Arrays.copyOf(maskedSymbols, maskedPositions.length);
+            }
+            maskedPositions[maskedNumber] = position;
+            maskedSymbols[maskedNumber] = (byte) symbol;
+            maskedNumber++;
+        }
+
+        private static int encode(char symbol) {
+            switch (symbol) {
+                case 'A':
+                    return 0;
+                case 'C':
+                    return 1;
+                case 'G':
+                    return 2;
+                case 'T':
+                    return 3;
+                default:
+                    return -1;
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        int length(int read) {
+            return lengths[read];
+        }
+
+        /**
+         * Returns 2-bit code of the base, the code of a masked base is 0.
+         */
+        int baseAt(int read, int position) {
+            long index = offsets[read] + position;
+            return (int) (bases[(int) (index / BASES_PER_WORD)]
+                    >>> (2 * (index % BASES_PER_WORD))) & 3;
+        }
+
+        /**
+         * Returns true if any read has a masked symbol other than N, an unknown base, so the
+         * reads are not DNA.
+         */
+        boolean hasNonDnaSymbols() {
+            for (int i = 0; i < maskedNumber; i++) {
+                if (maskedSymbols[i] != 'N') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns the position of the first masked base of the read at or after the position, or
+         * the read length if there is no such base.
+         */
+        int nextMasked(int read, int position) {
+            int from = maskedFrom[read];
+            int to = maskedFrom[read + 1];
+            if (from == to) {
+                return lengths[read];
+            }
+            int index = Arrays.binarySearch(maskedPositions, from, to, offsets[read] + position);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return index == to ? lengths[read] : (int) (maskedPositions[index] - offsets[read]);
+        }
+
+        String getRead(int read) {
+            char[] result = new char[lengths[read]];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = SYMBOLS[baseAt(read, i)];
+            }
+            for (int masked = maskedFrom[read]; masked < maskedFrom[read + 1]; masked++) {
+                result[(int) (maskedPositions[masked] - offsets[read])] =
+                        (char) (maskedSymbols[masked] & 0xFF);
+            }
+            return new String(result);
+        }
+    }
 }
@@ -1,15 +1,23 @@
 package week3;
 
-import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 import java.util.Set;
 
 /**
@@ -17,15 +25,11 @@ import java.util.Set;
  * Selecting the Optimal 𝑘-mer Size
  */
 public class SelectOptimalKmer {
-    private static final int DEFAULT_READS_NUMBER = 400;
-
-    public static void main(String... args) {
-        Scanner stdin = new Scanner(new BufferedInputStream(System.in));
-        Set<String> reads = new HashSet<>();
-        int readsCounter = 0;
-        while (readsCounter++ < DEFAULT_READS_NUMBER && stdin.hasNext()) {
-            reads.add(stdin.nextLine());
-        }
+    public static void main(String... args) throws IOException {
+        MappedReadsReader reader = new MappedReadsReader();
+        ReadStore readStore =
+                args.length > 0 ? reader.read(Paths.get(args[0])) : reader.readStandardInput();
+        PackedReadStore reads = PackedReadStore.of(readStore);
 
         SelectOptimalKmer solver = new SelectOptimalKmer();
         int optimalK = solver.findOptimalK(reads);
@@ -39,11 +43,23 @@ public class SelectOptimalKmer {
      * it iteratively decreases k size until Eulerian cycle in DeBrujin graph for the generated kmers exists.
      */
     int findOptimalK(Set<String> reads) {
-        int k = reads.iterator().next().length();
+        return findOptimalK(PackedReadStore.of(reads));
+    }
+
+    int findOptimalK(PackedReadStore reads) {
+        int k = reads.length(0);
+        boolean packed = !reads.hasNonDnaSymbols();
         while (k > 1) {
+            if (packed && k <= SuccinctDeBruijnGraph.MAX_K) {
+                if (hasEulerCycle(buildSuccinctDeBruijnGraph(reads, k))) {
+                    return k;
+                }
+                k--;
+                continue;
+            }
             Set<String> kmers = new HashSet<>();
-            for (String read : reads) {
-                generateKmers(read, k, kmers);
+            for (int i = 0; i < reads.size(); i++) {
+                generateKmers(reads.getRead(i), k, kmers);
             }
 
             DeBruijnGraph deBruijnGraph = buildDeBruijnGraph(kmers);
@@ -56,11 +72,50 @@ public class SelectOptimalKmer {
     }
 
     /**
-     * Creates k-mers of size k from the provided read and puts them into kmers set.
+     * Builds succinct De Bruijn graph of distinct k-mers of the reads, k-mer codes are rolled
+     * along the read and repeated k-mers are dropped by the graph. Masked bases are unknown, so
+     * k-mers with them are skipped: a k-mer is added only when the last k bases are unmasked.
+     * The reads should have no symbols other than A, C, G, T and N.
+     */
+    private SuccinctDeBruijnGraph buildSuccinctDeBruijnGraph(PackedReadStore reads, int k) {
+        int expectedKmers = 0;
+        for (int read = 0; read < reads.size(); read++) {
+            expectedKmers += Math.max(0, reads.length(read) - k + 1);
+        }
+        SuccinctDeBruijnGraph result = new SuccinctDeBruijnGraph(k, expectedKmers);
+        long mask = -1L >>> (Long.SIZE - 2 * k);
+        for (int read = 0; read < reads.size(); read++) {
+            long kmer = 0;
+            // Number of bases since the last masked base.
+            int unmasked = 0;
+            int masked = reads.nextMasked(read, 0);
+            for (int i = 0; i < reads.length(read); i++) {
+                if (i == masked) {
+                    unmasked = 0;
+                    masked = reads.nextMasked(read, i + 1);
+                    continue;
+                }
+                kmer = (kmer << 2 | reads.baseAt(read, i)) & mask;
+                if (++unmasked >= k) {
+                    result.addKMer(kmer);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates k-mers of size k from the provided read and puts them into kmers set. K-mers with
+     * the unknown base N are skipped as the succinct graph skips masked bases.
      */
     private void generateKmers(String read, int k, Set<String> kmers) {
-        for (int i = 0; i + k <= read.length(); i++) {
-            kmers.add(read.substring(i, i + k));
+        int unmasked = 0;
+        for (int i = 0; i < read.length(); i++) {
+            if (read.charAt(i) == 'N') {
+                unmasked = 0;
+            } else if (++unmasked >= k) {
+                kmers.add(read.substring(i - k + 1, i + 1));
+            }
         }
     }
 
@@ -87,78 +142,91 @@ public class SelectOptimalKmer {
     }
 
     /**
-     * Checks if the provided graph is a strongly connected (all vertices belong to a single strongly connected component).
+     * Checks if the succinct graph has Eulerian cycle, see {@link #hasEulerCycle(DeBruijnGraph)}.
      */
-    private boolean isStronglyConected(DeBruijnGraph graph) {
-        Map<String, Boolean> visited = visitGraphVertices(graph);
-        for (boolean isVisited : visited.values()) {
-            if (!isVisited) {
-                return false;
-            }
+    private boolean hasEulerCycle(SuccinctDeBruijnGraph graph) {
+        if (graph.getVerticesNumber() == 0) {
+            return false;
         }
-
-        DeBruijnGraph transposedGraph = transposeGraph(graph);
-        Map<String, Boolean> visitedTransposed = visitGraphVertices(transposedGraph);
-        for (boolean isVisited : visitedTransposed.values()) {
-            if (!isVisited) {
+        for (int v = 0; v < graph.getVertexIdBound(); v++) {
+            if (graph.isVertex(v)
+                    && (graph.getInDegree(v) == 0 || graph.getInDegree(v) != graph.getOutDegree(v))) {
                 return false;
             }
         }
-
-        return true;
+        return isReachable(graph, true) && isReachable(graph, false);
     }
 
     /**
-     * Iterate over graph vertices using DFS.
+     * Checks that all vertices are reachable from the first vertex following outgoing edges
+     * (forward) or inbound edges in the reverse direction.
      */
-    private Map<String, Boolean> visitGraphVertices(DeBruijnGraph graph) {
-        Map<String, Boolean> visited = new HashMap<>(graph.getVertices().size());
-        for (Vertex vertex : graph.getVertices()) {
-            visited.put(vertex.getId(), false);
+    private boolean isReachable(SuccinctDeBruijnGraph graph, boolean forward) {
+        BitSet visited = new BitSet(graph.getVertexIdBound());
+        int[] stack = new int[graph.getVerticesNumber()];
+        int stackSize = 0;
+        int visitedNumber = 1;
+        int start = 0;
+        while (!graph.isVertex(start)) {
+            start++;
         }
-        Deque<Vertex> stack = new LinkedList<>();
-        stack.add(graph.getVertices().iterator().next());
-
-        while (!stack.isEmpty()) {
-            Vertex vertex = stack.pop();
-            visited.put(vertex.getId(), true);
-
-            for (Edge edge : vertex.getOutgoingEdges()) {
-                if (!visited.get(edge.getDestinationVertexId())) {
-                    stack.push(graph.getVertexMap().get(edge.getDestinationVertexId()));
+        visited.set(start);
+        stack[stackSize++] = start;
+        while (stackSize > 0) {
+            int vertex = stack[--stackSize];
+            int degree = forward ? graph.getOutDegree(vertex) : graph.getInDegree(vertex);
+            for (int i = 0; i < degree; i++) {
+                int next = forward
+                        ? graph.getSuccessor(vertex, i)
+                        : graph.getPredecessor(vertex, i);
+                if (!visited.get(next)) {
+                    visited.set(next);
+                    visitedNumber++;
+                    stack[stackSize++] = next;
                 }
             }
         }
-        return visited;
+        return visitedNumber == graph.getVerticesNumber();
     }
 
     /**
-     * Creates transposed graph for the provided graph object.
+     * Checks if the provided graph is a strongly connected (all vertices belong to a single strongly connected component).
+     * All vertices should be reachable from one vertex following outgoing edges and following inbound edges backwards,
+     * so the graph is not transposed.
      */
-    private DeBruijnGraph transposeGraph(DeBruijnGraph graph) {
-        DeBruijnGraph result = new DeBruijnGraph();
-        for (Vertex vertex : graph.getVertices()) {
-            Vertex resultVertex = new Vertex(vertex.getId());
-            for (Edge inEdge : vertex.getInboundEdges()) {
-                resultVertex.addOutgoingEdge(
-                        new Edge(
-                                inEdge.getId(),
-                                inEdge.getName(),
-                                inEdge.getDestinationVertexId(),
-                                inEdge.getSourceVertexId()));
-            }
-            for (Edge outEdge : vertex.getOutgoingEdges()) {
-                resultVertex.addInboundEdge((
-                        new Edge(
-                                outEdge.getId(),
-                                outEdge.getName(),
-                                outEdge.getDestinationVertexId(),
-                                outEdge.getSourceVertexId())));
-            }
-            result.getVertexMap().put(vertex.getId(), resultVertex);
-        }
+    private boolean isStronglyConected(DeBruijnGraph graph) {
+        return isReachable(graph, true) && isReachable(graph, false);
+    }
 
-        return result;
+    /**
+     * Iterate over graph vertices using DFS along outgoing edges (forward) or inbound edges, returns true if all
+     * vertices are visited. Visits are kept in a bit set by vertex index.
+     */
+    private boolean isReachable(DeBruijnGraph graph, boolean forward) {
+        int verticesNumber = graph.getVertices().size();
+        if (verticesNumber == 0) {
+            return false;
+        }
+        BitSet visited = new BitSet(verticesNumber);
+        Vertex[] stack = new Vertex[verticesNumber];
+        int stackSize = 0;
+        stack[stackSize++] = graph.getVertices().iterator().next();
+        visited.set(stack[0].getIndex());
+        int visitedNumber = 1;
+
+        while (stackSize > 0) {
+            Vertex vertex = stack[--stackSize];
+            for (Edge edge : forward ? vertex.getOutgoingEdges() : vertex.getInboundEdges()) {
+                Vertex next = graph.getVertexMap().get(
+                        forward ? edge.getDestinationVertexId() : edge.getSourceVertexId());
+                if (!visited.get(next.getIndex())) {
+                    visited.set(next.getIndex());
+                    visitedNumber++;
+                    stack[stackSize++] = next;
+                }
+            }
+        }
+        return visitedNumber == verticesNumber;
     }
 
     /**
@@ -179,14 +247,14 @@ public class SelectOptimalKmer {
             Edge edge = new Edge(edgeCounter++, kmer, leftPart, rightPart);
             if (leftPart.equals(rightPart)) {
                 // Self-loop edge
-                Vertex vertex = vertexMap.computeIfAbsent(leftPart, k -> new Vertex(leftPart));
+                Vertex vertex = vertexMap.computeIfAbsent(leftPart, k -> new Vertex(leftPart, vertexMap.size()));
                 vertex.addOutgoingEdge(edge);
                 vertex.addInboundEdge(edge);
             } else {
-                Vertex leftVertex = vertexMap.computeIfAbsent(leftPart, k -> new Vertex(leftPart));
+                Vertex leftVertex = vertexMap.computeIfAbsent(leftPart, k -> new Vertex(leftPart, vertexMap.size()));
                 leftVertex.addOutgoingEdge(edge);
 
-                Vertex rightVertex = vertexMap.computeIfAbsent(rightPart, k -> new Vertex(rightPart));
+                Vertex rightVertex = vertexMap.computeIfAbsent(rightPart, k -> new Vertex(rightPart, vertexMap.size()));
                 rightVertex.addInboundEdge(edge);
             }
         }
@@ -205,11 +273,14 @@ public class SelectOptimalKmer {
      */
     static class Vertex {
         private final String id;
+        // Dense index of the vertex in the graph in the order of creation.
+        private final int index;
         private final List<Edge> inboundEdges;
         private final List<Edge> outgoingEdges;
 
-        Vertex(String id) {
+        Vertex(String id, int index) {
             this.id = id;
+            this.index = index;
             inboundEdges = new ArrayList<>();
             outgoingEdges = new ArrayList<>();
         }
@@ -218,6 +289,10 @@ public class SelectOptimalKmer {
             return id;
         }
 
+        int getIndex() {
+            return index;
+        }
+
         List<Edge> getInboundEdges() {
             return inboundEdges;
         }
@@ -271,4 +346,621 @@ public class SelectOptimalKmer {
             return this.sourceVertexid.equals(this.destinationVertexId);
         }
     }
+
+    /**
+     * De Bruijn graph of distinct k-mers packed into longs, 2 bits per base, without edge lists.
+     * k is at most 32, so a vertex code is never negative. Vertices are packed (k-1)-mers in an
+     * open addressing table with linear probing and the slot of a vertex is its id, so ids are
+     * not dense, see {@link #getVertexIdBound()}. Next to the key a slot has one byte of edge
+     * bits: bit b of the low half is set if there is the edge to the vertex ending with base b,
+     * bit b of the high half if there is the edge from the vertex starting with base b.
+     * Neighbours are found by a shift and a lookup in the table. A slot takes 9 bytes and the
+     * table is from 3/8 to 3/4 full after it has grown, so a vertex takes 12 to 24 bytes.
+     */
+    static class SuccinctDeBruijnGraph {
+        static final int MAX_K = 32;
+        private static final char[] BASES = {'A', 'C', 'G', 'T'};
+        private static final long EMPTY = -1;
+        private static final int MAX_CAPACITY = 1 << 30;
+
+        private final int k;
+        private final long vertexMask;
+        private long[] keys;
+        private byte[] edgeBits;
+        private int bits;
+        private int verticesNumber;
+        private int edgesNumber;
+
+        /**
+         * Creates the graph which takes the expected number of k-mers without a resize.
+         */
+        SuccinctDeBruijnGraph(int k, int expectedKmers) {
+            if (k < 2 || k > MAX_K) {
+                throw new IllegalArgumentException("k should be from 2 to " + MAX_K + ": " + k);
+            }
+            this.k = k;
+            this.vertexMask = (1L << (2 * (k - 1))) - 1;
+            // Distinct k-mers have at most one vertex more than k-mers.
+            int capacity = 16;
+            while (capacity < MAX_CAPACITY && 3L * capacity < 4L * (expectedKmers + 1)) {
+                capacity <<= 1;
+            }
+            allocate(capacity);
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            edgeBits = new byte[capacity];
+            bits = Integer.numberOfTrailingZeros(capacity);
+        }
+
+        /**
+         * Adds the edge of the packed k-mer, returns false if the graph already has it. The table
+         * grows before both vertices are added, so the source slot stays valid.
+         */
+        boolean addKMer(long kmer) {
+            if (4L * (verticesNumber + 2) > 3L * keys.length) {
+                resize();
+            }
+            int source = addVertex(kmer >>> 2);
+            int target = addVertex(kmer & vertexMask);
+            int outgoingBit = 1 << (int) (kmer & 3);
+            if ((edgeBits[source] & outgoingBit) != 0) {
+                return false;
+            }
+            edgeBits[source] |= outgoingBit;
+            edgeBits[target] |= 1 << (4 + (int) (kmer >>> (2 * (k - 1))));
+            edgesNumber++;
+            return true;
+        }
+
+        private int addVertex(long vertex) {
+            int slot = findSlot(vertex);
+            if (keys[slot] == EMPTY) {
+                keys[slot] = vertex;
+                verticesNumber++;
+            }
+            return slot;
+        }
+
+        /**
+         * Returns the slot of the vertex or the empty slot where it should be put.
+         */
+        private int findSlot(long vertex) {
+            int mask = keys.length - 1;
+            // Fibonacci hashing: the high bits of the product depend on all bits of the key.
+            int slot = (int) ((vertex * 0x9E3779B97F4A7C15L) >>> (64 - bits));
+            while (keys[slot] != EMPTY && keys[slot] != vertex) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void resize() {
+            if (keys.length == MAX_CAPACITY) {
+                throw new IllegalStateException("Too many vertices: " + verticesNumber);
+            }
+            long[] oldKeys = keys;
+            byte[] oldEdgeBits = edgeBits;
+            allocate(keys.length * 2);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = findSlot(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    edgeBits[slot] = oldEdgeBits[i];
+                }
+            }
+        }
+
+        int getVerticesNumber() {
+            return verticesNumber;
+        }
+
+        int getEdgesNumber() {
+            return edgesNumber;
+        }
+
+        /**
+         * Returns the bound of vertex ids, ids are from 0 to the bound and not every id below it
+         * is a vertex, see {@link #isVertex(int)}.
+         */
+        int getVertexIdBound() {
+            return keys.length;
+        }
+
+        /**
+         * Checks if the id is a vertex and not an empty slot.
+         */
+        boolean isVertex(int vertex) {
+            return keys[vertex] != EMPTY;
+        }
+
+        /**
+         * Returns id of the vertex with the packed (k-1)-mer or -1.
+         */
+        int getVertex(long vertex) {
+            int slot = findSlot(vertex);
+            return keys[slot] == EMPTY ? -1 : slot;
+        }
+
+        String getVertexId(int vertex) {
+            char[] result = new char[k - 1];
+            long code = keys[vertex];
+            for (int i = k - 2; i >= 0; i--) {
+                result[i] = BASES[(int) (code & 3)];
+                code >>>= 2;
+            }
+            return new String(result);
+        }
+
+        char getLastBase(int vertex) {
+            return BASES[(int) (keys[vertex] & 3)];
+        }
+
+        int getOutDegree(int vertex) {
+            return Integer.bitCount(edgeBits[vertex] & 0xF);
+        }
+
+        int getInDegree(int vertex) {
+            return Integer.bitCount(edgeBits[vertex] >>> 4 & 0xF);
+        }
+
+        /**
+         * Returns the i-th successor of the vertex in the order of the appended base.
+         */
+        int getSuccessor(int vertex, int i) {
+            int base = nthBit(edgeBits[vertex] & 0xF, i);
+            return getVertex((keys[vertex] << 2 | base) & vertexMask);
+        }
+
+        /**
+         * Returns the i-th predecessor of the vertex in the order of the prepended base.
+         */
+        int getPredecessor(int vertex, int i) {
+            int base = nthBit(edgeBits[vertex] >>> 4 & 0xF, i);
+            return getVertex((long) base << (2 * (k - 2)) | keys[vertex] >>> 2);
+        }
+
+        private static int nthBit(int bits, int n) {
+            for (; n > 0; n--) {
+                bits &= bits - 1;
+            }
+            return Integer.numberOfTrailingZeros(bits);
+        }
+    }
+
+    /**
+     * Reads stored as slices of byte buffers. Buffers are usually memory mapped input files, so
+     * reads are not copied into the heap.
+     */
+    static class ReadStore {
+        private final List<ByteBuffer> buffers = new ArrayList<>();
+        private int[] bufferOfRead = new int[16];
+        private int[] offsets = new int[16];
+        private int[] lengths = new int[16];
+        private int size;
+
+        int addBuffer(ByteBuffer buffer) {
+            buffers.add(buffer);
+            return buffers.size() - 1;
+        }
+
+        void addRead(int buffer, int offset, int length) {
+            if (size == offsets.length) {
+                bufferOfRead = Arrays.copyOf(bufferOfRead, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+            }
+            bufferOfRead[size] = buffer;
+            offsets[size] = offset;
+            lengths[size] = length;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int length(int read) {
+            return lengths[read];
+        }
+
+        byte byteAt(int read, int position) {
+            return buffers.get(bufferOfRead[read]).get(offsets[read] + position);
+        }
+
+        byte[] getBytes(int read) {
+            byte[] result = new byte[lengths[read]];
+            ByteBuffer buffer = buffers.get(bufferOfRead[read]).duplicate();
+            buffer.position(offsets[read]);
+            buffer.get(result);
+            return result;
+        }
+
+        String getRead(int read) {
+            return new String(getBytes(read), StandardCharsets.ISO_8859_1);
+        }
+
+        /**
+         * Returns distinct reads as strings.
+         */
+        Set<String> toSet() {
+            Set<String> result = new HashSet<>(size * 2);
+            for (int i = 0; i < size; i++) {
+                result.add(getRead(i));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Reader of FASTA, FASTQ and plain (one read per line) files, record formats may be mixed,
+     * FASTA sequence lasts until the next line starting with '>' or '@'.
+     * Files are memory mapped by segments of at most {@link #MAX_SEGMENT_SIZE} bytes starting at
+     * record boundaries. Sequences written on a single line are referenced in the mapped segment,
+     * only multi-line FASTA sequences are copied.
+     */
+    static class MappedReadsReader {
+        private static final int MAX_SEGMENT_SIZE = Integer.MAX_VALUE - 8;
+
+        private final int maxSegmentSize;
+
+        MappedReadsReader() {
+            this(MAX_SEGMENT_SIZE);
+        }
+
+        MappedReadsReader(int maxSegmentSize) {
+            this.maxSegmentSize = maxSegmentSize;
+        }
+
+        ReadStore read(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                return read(channel);
+            }
+        }
+
+        /**
+         * Reads standard input, it is memory mapped if redirected from a file and read into the
+         * heap otherwise.
+         */
+        ReadStore readStandardInput() throws IOException {
+            FileChannel channel = new FileInputStream(FileDescriptor.in).getChannel();
+            if (channel.size() > 0) {
+                try {
+                    return read(channel);
+                } catch (IOException e) {
+                    // Not a regular file, read it as a stream.
+                }
+            }
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] chunk = new byte[1 << 16];
+            int length;
+            while ((length = System.in.read(chunk)) > 0) {
+                content.write(chunk, 0, length);
+            }
+            ReadStore store = new ReadStore();
+            ByteBuffer buffer = ByteBuffer.wrap(content.toByteArray());
+            parse(buffer, store.addBuffer(buffer), true, store);
+            return store;
+        }
+
+        ReadStore read(FileChannel channel) throws IOException {
+            ReadStore store = new ReadStore();
+            long fileSize = channel.size();
+            long position = 0;
+            while (position < fileSize) {
+                long segmentSize = Math.min(maxSegmentSize, fileSize - position);
+                boolean lastSegment = position + segmentSize == fileSize;
+                ByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, position, segmentSize);
+                int parsed = parse(segment, store.addBuffer(segment), lastSegment, store);
+                if (parsed == 0 && !lastSegment) {
+                    throw new IOException("Record at " + position + " exceeds segment size");
+                }
+                position += parsed;
+            }
+            return store;
+        }
+
+        /**
+         * Parses complete records of the buffer. Incomplete record at the end of the last buffer
+         * (e.g. FASTQ record without quality line) is skipped.
+         *
+         * @return position of the first incomplete record or the buffer size
+         */
+        int parse(ByteBuffer buffer, int bufferIndex, boolean lastBuffer, ReadStore store) {
+            int limit = buffer.limit();
+            int position = 0;
+            while (true) {
+                while (position < limit && isLineBreak(buffer.get(position))) {
+                    position++;
+                }
+                if (position >= limit) {
+                    return limit;
+                }
+
+                int recordStart = position;
+                byte first = buffer.get(position);
+                if (first == '>') {
+                    int headerEnd = lineEnd(buffer, position, lastBuffer);
+                    if (headerEnd < 0) {
+                        return lastBuffer ? limit : recordStart;
+                    }
+                    position = nextLine(buffer, headerEnd);
+                    int sequenceStart = position;
+                    int sequenceEnd = position;
+                    int lines = 0;
+                    while (position < limit && !isRecordStart(buffer.get(position))) {
+                        int end = lineEnd(buffer, position, lastBuffer);
+                        if (end < 0) {
+                            return lastBuffer ? limit : recordStart;
+                        }
+                        if (end > position) {
+                            if (lines == 0) {
+                                sequenceStart = position;
+                            }
+                            sequenceEnd = end;
+                            lines++;
+                        }
+                        position = nextLine(buffer, end);
+                    }
+                    if (position >= limit && !lastBuffer) {
+                        return recordStart;
+                    }
+                    if (lines == 1) {
+                        store.addRead(bufferIndex, sequenceStart, sequenceEnd - sequenceStart);
+                    } else if (lines > 1) {
+                        addJoinedLines(buffer, sequenceStart, position, store);
+                    }
+                } else if (first == '@') {
+                    int[] ends = new int[4];
+                    int linePosition = position;
+                    for (int line = 0; line < ends.length; line++) {
+                        ends[line] = linePosition < limit
+                                ? lineEnd(buffer, linePosition, lastBuffer) : -1;
+                        if (ends[line] < 0) {
+                            return lastBuffer ? limit : recordStart;
+                        }
+                        linePosition = nextLine(buffer, ends[line]);
+                    }
+                    int sequenceStart = nextLine(buffer, ends[0]);
+                    store.addRead(bufferIndex, sequenceStart, ends[1] - sequenceStart);
+                    position = linePosition;
+                } else {
+                    int end = lineEnd(buffer, position, lastBuffer);
+                    if (end < 0) {
+                        return lastBuffer ? limit : recordStart;
+                    }
+                    store.addRead(bufferIndex, position, end - position);
+                    position = nextLine(buffer, end);
+                }
+            }
+        }
+
+        private static void addJoinedLines(ByteBuffer buffer, int from, int to, ReadStore store) {
+            ByteArrayOutputStream sequence = new ByteArrayOutputStream(to - from);
+            for (int i = from; i < to; i++) {
+                byte symbol = buffer.get(i);
+                if (!isLineBreak(symbol)) {
+                    sequence.write(symbol);
+                }
+            }
+            byte[] bytes = sequence.toByteArray();
+            store.addRead(store.addBuffer(ByteBuffer.wrap(bytes)), 0, bytes.length);
+        }
+
+        /**
+         * Returns the end of the line content (without line break symbols) or -1 if the line is
+         * not terminated within the buffer.
+         */
+        private static int lineEnd(ByteBuffer buffer, int lineStart, boolean lastBuffer) {
+            int limit = buffer.limit();
+            int position = lineStart;
+            while (position < limit && buffer.get(position) != '\n') {
+                position++;
+            }
+            if (position == limit && !lastBuffer) {
+                return -1;
+            }
+            if (position > lineStart && buffer.get(position - 1) == '\r') {
+                position--;
+            }
+            return position;
+        }
+
+        private static int nextLine(ByteBuffer buffer, int lineEnd) {
+            int limit = buffer.limit();
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            return Math.min(lineEnd + 1, limit);
+        }
+
+        private static boolean isRecordStart(byte symbol) {
+            return symbol == '>' || symbol == '@';
+        }
+
+        private static boolean isLineBreak(byte symbol) {
+            return symbol == '\n' || symbol == '\r';
+        }
+    }
+
+    /**
+     * Read store keeping all bases in a single long array, 2 bits per base (A, C, G, T), reads
+     * are addressed by offset and length arrays (struct of arrays). Other symbols (usually N)
+     * are masked: the base positions and the original symbols are kept in sorted arrays, a read
+     * refers to the range of its masked positions, so reads without masked bases are decoded
+     * without a lookup. A base takes 2 bits instead of 2 bytes of a String.
+     */
+    static class PackedReadStore {
+        private static final char[] SYMBOLS = {'A', 'C', 'G', 'T'};
+        private static final int BASES_PER_WORD = 32;
+
+        private long[] bases = new long[16];
+        private long[] offsets = new long[17];
+        private int[] lengths = new int[16];
+        // Masked positions of the reads from maskedFrom[read] to maskedFrom[read + 1].
+        private int[] maskedFrom = new int[17];
+        private long[] maskedPositions = new long[0];
+        private byte[] maskedSymbols = new byte[0];
+        private int maskedNumber;
+        private int size;
+
+        static PackedReadStore of(Collection<? extends CharSequence> reads) {
+            PackedReadStore store = new PackedReadStore();
+            for (CharSequence read : reads) {
+                store.add(read);
+            }
+            return store;
+        }
+
+        static PackedReadStore of(ReadStore reads) {
+            PackedReadStore store = new PackedReadStore();
+            for (int i = 0; i < reads.size(); i++) {
+                store.add(reads, i);
+            }
+            return store;
+        }
+
+        /**
+         * Appends the read, returns its index.
+         */
+        int add(CharSequence read) {
+            long offset = reserve(read.length());
+            for (int i = 0; i < read.length(); i++) {
+                putSymbol(offset + i, read.charAt(i));
+            }
+            return commit(read.length());
+        }
+
+        /**
+         * Appends the read of the byte store packing its bytes directly, returns its index.
+         */
+        int add(ReadStore reads, int read) {
+            int length = reads.length(read);
+            long offset = reserve(length);
+            for (int i = 0; i < length; i++) {
+                putSymbol(offset + i, (char) (reads.byteAt(read, i) & 0xFF));
+            }
+            return commit(length);
+        }
+
+        /**
+         * Makes room for the next read of the given length, returns its offset.
+         */
+        private long reserve(int length) {
+            if (size == lengths.length) {
+                offsets = Arrays.copyOf(offsets, size * 2 + 1);
+                maskedFrom = Arrays.copyOf(maskedFrom, size * 2 + 1);
+                lengths = Arrays.copyOf(lengths, size * 2);
+            }
+            long end = offsets[size] + length;
+            int words = (int) ((end + BASES_PER_WORD - 1) / BASES_PER_WORD);
+            if (words > bases.length) {
+                bases = Arrays.copyOf(bases, Math.max(words, bases.length * 2));
+            }
+            return offsets[size];
+        }
+
+        private void putSymbol(long position, char symbol) {
+            int code = encode(symbol);
+            if (code < 0) {
+                addMasked(position, symbol);
+                code = 0;
+            }
+            bases[(int) (position / BASES_PER_WORD)] |=
+                    (long) code << (2 * (position % BASES_PER_WORD));
+        }
+
+        private int commit(int length) {
+            lengths[size] = length;
+            offsets[size + 1] = offsets[size] + length;
+            maskedFrom[size + 1] = maskedNumber;
+            return size++;
+        }
+
+        private void addMasked(long position, char symbol) {
+            if (maskedNumber == maskedPositions.length) {
+                maskedPositions = Arrays.copyOf(maskedPositions, Math.max(16, maskedNumber * 2));
+                maskedSymbols = Arrays.copyOf(maskedSymbols, maskedPositions.length);
+            }
+            maskedPositions[maskedNumber] = position;
+            maskedSymbols[maskedNumber] = (byte) symbol;
+            maskedNumber++;
+        }
+
+        private static int encode(char symbol) {
+            switch (symbol) {
+                case 'A':
+                    return 0;
+                case 'C':
+                    return 1;
+                case 'G':
+                    return 2;
+                case 'T':
+                    return 3;
+                default:
+                    return -1;
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        int length(int read) {
+            return lengths[read];
+        }
+
+        /**
+         * Returns 2-bit code of the base, the code of a masked base is 0.
+         */
+        int baseAt(int read, int position) {
+            long index = offsets[read] + position;
+            return (int) (bases[(int) (index / BASES_PER_WORD)]
+                    >>> (2 * (index % BASES_PER_WORD))) & 3;
+        }
+
+        /**
+         * Returns true if any read has a masked symbol other than N, an unknown base, so the
+         * reads are not DNA.
+         */
+        boolean hasNonDnaSymbols() {
+            for (int i = 0; i < maskedNumber; i++) {
+                if (maskedSymbols[i] != 'N') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns the position of the first masked base of the read at or after the position, or
+         * the read length if there is no such base.
+         */
+        int nextMasked(int read, int position) {
+            int from = maskedFrom[read];
+            int to = maskedFrom[read + 1];
+            if (from == to) {
+                return lengths[read];
+            }
+            int index = Arrays.binarySearch(maskedPositions, from, to, offsets[read] + position);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return index == to ? lengths[read] : (int) (maskedPositions[index] - offsets[read]);
+        }
+
+        String getRead(int read) {
+            char[] result = new char[lengths[read]];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = SYMBOLS[baseAt(read, i)];
+            }
+            for (int masked = maskedFrom[read]; masked < maskedFrom[read + 1]; masked++) {
+                result[(int) (maskedPositions[masked] - offsets[read])] =
+                        (char) (maskedSymbols[masked] & 0xFF);
+            }
+            return new String(result);
+        }
+    }
 }
@@ -4,10 +4,19 @@ import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static util.CommonTestHelper.generateGenome;
 
 /**
  * Unit tests for week1.PhiX174ErrorFreeOverlap.
@@ -44,6 +53,14 @@ public class PhiX174ErrorFreeOverlapTest {
         assertEquals(2, solver.stringsOverlap("TTGC", "GCAA")); // overlap - ABA
     }
 
+    @Test
+    public void testRemoveContainedReads() {
+        String[] reads = new String[]{"ACGTAC", "CGTA", "GTACGG", "TTT", "AC", "ACGG"};
+        String[] result = solver.removeContainedReads(reads);
+
+        assertArrayEquals(new String[]{"ACGTAC", "GTACGG", "TTT"}, result);
+    }
+
     @Test
     public void testBuildOverlapGraph_singleEdgeForward() {
         /*
@@ -110,6 +127,67 @@ public class PhiX174ErrorFreeOverlapTest {
         assertEquals(5, node1AdjVertices[0].weight);
     }
 
+    @Test
+    public void testTransitiveReduction_impliedEdgeRemoved() {
+        /*
+         * CGTACG --5--> GTACGT --5--> TACGTT
+         *    \---------4------------/
+         */
+        String[] reads = new String[]{"CGTACG", "GTACGT", "TACGTT"};
+        PhiX174ErrorFreeOverlap.TransitiveReductionOverlapGraphBuilder builder =
+                new PhiX174ErrorFreeOverlap.TransitiveReductionOverlapGraphBuilder(
+                        solver::buildOverlapGraph);
+        List<PhiX174ErrorFreeOverlap.Vertex>[] graph = builder.buildOverlapGraph(reads);
+
+        assertEquals(1, builder.getRemovedEdges());
+        assertEquals(1, graph[0].size());
+        assertEquals(1, graph[0].get(0).index);
+        assertEquals(5, graph[0].get(0).weight);
+        assertEquals(2, graph[1].get(0).index);
+    }
+
+    @Test
+    public void testBuildCompactOverlapGraph_sameAsAdjacencyList() {
+        String[] reads = generateDistinctReads(200, 150, 10);
+        PhiX174ErrorFreeOverlap.CompactOverlapGraph graph = solver.buildCompactOverlapGraph(reads);
+
+        assertEquals(reads.length, graph.getVerticesNumber());
+        assertSameGraph(solver.buildOverlapGraph(reads), graph.toAdjacencyList());
+    }
+
+    @Test
+    public void testBuildCompactOverlapGraph_overlapLongerThanShort() {
+        String genome = String.valueOf(generateGenome(50000));
+        String[] reads = new String[]{genome.substring(0, 40000), genome.substring(5000, 45000)};
+        solver = new PhiX174ErrorFreeOverlap(100);
+        PhiX174ErrorFreeOverlap.CompactOverlapGraph graph = solver.buildCompactOverlapGraph(reads);
+
+        assertFalse(graph.hasShortWeights());
+        assertEquals(35000, graph.getWeight(0));
+        assertSameGraph(solver.buildOverlapGraph(reads), graph.toAdjacencyList());
+        assertEquals(35000,
+                solver.buildLongestHamiltonianPath(solver.buildOverlapGraph(reads)).getLast().weight);
+    }
+
+    @Test
+    public void testBuildLongestHamiltonianPath_compactGraph() {
+        String[] reads = new String[]{"GTACGT", "TACGTA", "CGTACG", "ACGTAC", "GTACGA", "TACGAT",
+                "ACGATG", "CGATGT", "GATGTA", "ATGTAC", "TGTACG"};
+        solver = new PhiX174ErrorFreeOverlap(5);
+        Deque<PhiX174ErrorFreeOverlap.Vertex> expected =
+                solver.buildLongestHamiltonianPath(solver.buildOverlapGraph(reads));
+        Deque<PhiX174ErrorFreeOverlap.Vertex> actual =
+                solver.buildLongestHamiltonianPath(solver.buildCompactOverlapGraph(reads));
+
+        assertEquals(expected.size(), actual.size());
+        Iterator<PhiX174ErrorFreeOverlap.Vertex> actualIterator = actual.iterator();
+        for (PhiX174ErrorFreeOverlap.Vertex vertex : expected) {
+            PhiX174ErrorFreeOverlap.Vertex actualVertex = actualIterator.next();
+            assertEquals(vertex.index, actualVertex.index);
+            assertEquals(vertex.weight, actualVertex.weight);
+        }
+    }
+
     @Test
     public void testBuildLongestHamiltonianPath_singleEdgeVertices_noCycle() {
         /*
@@ -171,6 +249,80 @@ public class PhiX174ErrorFreeOverlapTest {
         verifyPath(expectedPath, path.toArray(new PhiX174ErrorFreeOverlap.Vertex[path.size()]));
     }
 
+    @Test
+    public void testBuildLongestHamiltonianPath_longChain() {
+        int verticesNumber = 200_000;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        List<PhiX174ErrorFreeOverlap.Vertex>[] graph = new List[verticesNumber];
+        for (int i = 0; i < verticesNumber; i++) {
+            graph[i] = new LinkedList<>();
+            graph[i].add(new PhiX174ErrorFreeOverlap.Vertex((i + 1) % verticesNumber, 1));
+        }
+
+        Deque<PhiX174ErrorFreeOverlap.Vertex> path = solver.buildLongestHamiltonianPath(graph);
+        assertEquals(verticesNumber, path.size());
+        assertEquals(verticesNumber - 1, path.getLast().index);
+    }
+
+    @Test
+    public void testBuildLongestHamiltonianPath_backtrackBudgetExhausted() {
+        /*
+         * 0 --2--> 1 --1--> 2
+         *  \----1--> 3 --1--/
+         * Greedy path 0 -> 1 -> 2 is a dead end, search is stopped on the first backtrack.
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        List<PhiX174ErrorFreeOverlap.Vertex>[] graph = new List[4];
+        graph[0] = new LinkedList<>();
+        graph[0].add(new PhiX174ErrorFreeOverlap.Vertex(1, 2));
+        graph[0].add(new PhiX174ErrorFreeOverlap.Vertex(3, 1));
+        graph[1] = new LinkedList<>();
+        graph[1].add(new PhiX174ErrorFreeOverlap.Vertex(2, 1));
+        graph[2] = new LinkedList<>();
+        graph[3] = new LinkedList<>();
+        graph[3].add(new PhiX174ErrorFreeOverlap.Vertex(1, 1));
+
+        solver = new PhiX174ErrorFreeOverlap(MIN_OVERLAP_LENGTH, null, 0,
+                PhiX174ErrorFreeOverlap.UNLIMITED_TIME);
+        Deque<PhiX174ErrorFreeOverlap.Vertex> path = solver.buildLongestHamiltonianPath(graph);
+        verifyPath(new Integer[]{0, 1, 2},
+                path.toArray(new PhiX174ErrorFreeOverlap.Vertex[path.size()]));
+
+        solver = new PhiX174ErrorFreeOverlap(MIN_OVERLAP_LENGTH);
+        path = solver.buildLongestHamiltonianPath(graph);
+        verifyPath(new Integer[]{0, 3, 1, 2},
+                path.toArray(new PhiX174ErrorFreeOverlap.Vertex[path.size()]));
+    }
+
+    @Test
+    public void testGreedyLayout_multiEdgeVertices() {
+        /*
+         *          CGCA
+         *        /      \
+         *       1        3
+         *      /          \
+         * AAAC -----2----> ACGA
+         *  \-----<--1-------/
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        List<PhiX174ErrorFreeOverlap.Vertex>[] graph = new List[3];
+        graph[0] = new LinkedList<>();
+        graph[0].add(new PhiX174ErrorFreeOverlap.Vertex(2, 2));
+        graph[0].add(new PhiX174ErrorFreeOverlap.Vertex(1, 1));
+        graph[1] = new LinkedList<>();
+        graph[1].add(new PhiX174ErrorFreeOverlap.Vertex(2, 3));
+        graph[2] = new LinkedList<>();
+        graph[2].add(new PhiX174ErrorFreeOverlap.Vertex(0, 1));
+
+        Deque<PhiX174ErrorFreeOverlap.Vertex> path =
+                new PhiX174ErrorFreeOverlap.GreedyLayoutStrategy().buildLayout(graph);
+        PhiX174ErrorFreeOverlap.Vertex[] pathVertices =
+                path.toArray(new PhiX174ErrorFreeOverlap.Vertex[path.size()]);
+        verifyPath(new Integer[]{0, 1, 2}, pathVertices);
+        assertEquals(1, pathVertices[1].weight);
+        assertEquals(3, pathVertices[2].weight);
+    }
+
     @Test
     public void testAssemblyGenomeFromReadsAndPath() {
         String[] reads = new String[]{"AAAC", "CGCA", "ACGA"};
@@ -210,6 +362,41 @@ public class PhiX174ErrorFreeOverlapTest {
         verifyGenome("TAGCAG", genome);
     }
 
+    @Test
+    public void testAssemblyGenomeFromReads_greedyLayout() {
+        String genomeString = String.valueOf(generateGenome(300));
+        String[] reads = generateCircularReads(genomeString, 30);
+
+        solver = new PhiX174ErrorFreeOverlap(12, null,
+                new PhiX174ErrorFreeOverlap.GreedyLayoutStrategy());
+        String assemblyGenome = solver.assemblyGenome(reads);
+
+        verifyGenome(genomeString, assemblyGenome);
+    }
+
+    @Test
+    public void testAssemblyGenomeFromReads_transitiveReduction() {
+        solver = new PhiX174ErrorFreeOverlap(5,
+                new PhiX174ErrorFreeOverlap.TransitiveReductionOverlapGraphBuilder(
+                        new PhiX174ErrorFreeOverlap(5)::buildOverlapGraph));
+        String[] reads = new String[]{"GTACGT", "TACGTA", "CGTACG", "ACGTAC", "GTACGA", "TACGAT",
+                "ACGATG", "CGATGT", "GATGTA", "ATGTAC", "TGTACG"};
+        String genome = solver.assemblyGenome(reads);
+
+        verifyGenome("GTACGTACGAT", genome);
+    }
+
+    @Test
+    public void testAssemblyGenomeFromReads_containedReads() {
+        solver = new PhiX174ErrorFreeOverlap(5);
+        String[] reads = new String[]{"GTACGT", "TACGTA", "CGTACG", "ACGTAC", "GTACGA", "TACGAT",
+                "ACGATG", "CGATGT", "GATGTA", "ATGTAC", "TGTACG", "CGAT", "TGTA", "GTACG"};
+        String genome = solver.assemblyGenome(reads);
+
+        verifyGenome("GTACGTACGAT", genome);
+        assertEquals(3, solver.getContainedReads());
+    }
+
     @Test
     @Ignore
     public void testAssemblyGenomeFromReads_20fixed() {
@@ -293,6 +480,605 @@ public class PhiX174ErrorFreeOverlapTest {
         verifyGenome(genomeString, assemblyGenome);
     }
 
+    @Test
+    public void testSuffixArrayOverlapGraph_sameAsPairwise() {
+        String[] reads = generateDistinctReads(200, 150, 10);
+        PhiX174ErrorFreeOverlap.SuffixArrayOverlapGraphBuilder builder =
+                new PhiX174ErrorFreeOverlap.SuffixArrayOverlapGraphBuilder(MIN_OVERLAP_LENGTH);
+
+        assertSameGraph(solver.buildOverlapGraph(reads), builder.buildOverlapGraph(reads));
+    }
+
+    @Test
+    public void testSuffixArrayOverlapGraph_vertexSortedByWeight() {
+        String[] reads = new String[]{"CGTACG", "GTACGT", "TACGAT", "ACGTTT"};
+        PhiX174ErrorFreeOverlap.SuffixArrayOverlapGraphBuilder builder =
+                new PhiX174ErrorFreeOverlap.SuffixArrayOverlapGraphBuilder(MIN_OVERLAP_LENGTH);
+
+        assertSameGraph(solver.buildOverlapGraph(reads), builder.buildOverlapGraph(reads));
+    }
+
+    @Test
+    public void testAssemblyGenomeFromReads_suffixArray() {
+        solver = new PhiX174ErrorFreeOverlap(5,
+                new PhiX174ErrorFreeOverlap.SuffixArrayOverlapGraphBuilder(5));
+        String[] reads = new String[]{"GTACGT", "TACGTA", "CGTACG", "ACGTAC", "GTACGA", "TACGAT",
+                "ACGATG", "CGATGT", "GATGTA", "ATGTAC", "TGTACG"};
+        String genome = solver.assemblyGenome(reads);
+
+        verifyGenome("GTACGTACGAT", genome);
+    }
+
+    @Test
+    public void testMinimizerOverlapGraph_sameAsPairwise() {
+        String[] reads = generateDistinctReads(500, 200, 20);
+        solver = new PhiX174ErrorFreeOverlap(8);
+        PhiX174ErrorFreeOverlap.MinimizerOverlapGraphBuilder builder =
+                new PhiX174ErrorFreeOverlap.MinimizerOverlapGraphBuilder(8, 3, 5);
+
+        assertSameGraph(solver.buildOverlapGraph(reads), builder.buildOverlapGraph(reads));
+        assertEquals((long) reads.length * (reads.length - 1),
+                builder.getVerifiedPairs() + builder.getSkippedPairs());
+        assertTrue(builder.getSkippedPairs() > builder.getVerifiedPairs());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMinimizerOverlapGraph_windowLongerThanOverlap() {
+        new PhiX174ErrorFreeOverlap.MinimizerOverlapGraphBuilder(5, 3, 4);
+    }
+
+    @Test
+    public void testParallelOverlapGraph_sameAsSequential() {
+        String[] reads = generateDistinctReads(300, 250, 10);
+        PhiX174ErrorFreeOverlap.ParallelOverlapGraphBuilder builder =
+                new PhiX174ErrorFreeOverlap.ParallelOverlapGraphBuilder(MIN_OVERLAP_LENGTH, 4, 16);
+
+        assertSameGraph(solver.buildOverlapGraph(reads), builder.buildOverlapGraph(reads));
+    }
+
+    @Test
+    public void testOverlapKernels_sameAsStringsOverlap() {
+        PhiX174ErrorFreeOverlap.OverlapKernel[] kernels = {
+                new PhiX174ErrorFreeOverlap.ScalarOverlapKernel(),
+                new PhiX174ErrorFreeOverlap.VectorizedOverlapKernel()};
+        String[] reads = generateDistinctReads(100, 60, 40);
+        byte[][] encodedReads = PhiX174ErrorFreeOverlap.encodeReads(reads);
+
+        for (int i = 0; i < reads.length; i++) {
+            for (int j = 0; j < reads.length; j++) {
+                int expected = solver.stringsOverlap(reads[i], reads[j]);
+                for (PhiX174ErrorFreeOverlap.OverlapKernel kernel : kernels) {
+                    assertEquals(expected, kernel.overlap(encodedReads[i], encodedReads[j], 0));
+                    assertEquals(expected >= 20 ? expected : 0,
+                            kernel.overlap(encodedReads[i], encodedReads[j], 20));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testKernelOverlapGraph_sameAsPairwise() {
+        String[] reads = generateDistinctReads(200, 150, 10);
+        PhiX174ErrorFreeOverlap.KernelOverlapGraphBuilder builder =
+                new PhiX174ErrorFreeOverlap.KernelOverlapGraphBuilder(MIN_OVERLAP_LENGTH,
+                        new PhiX174ErrorFreeOverlap.VectorizedOverlapKernel());
+
+        assertSameGraph(solver.buildOverlapGraph(reads), builder.buildOverlapGraph(reads));
+    }
+
+    @Test
+    public void testMappedReadsReader_mixedFormats() throws IOException {
+        String content = "ACGTAC\n"
+                + ">read1 description\nGGTTAA\n"
+                + ">read2\nAC\nGT\r\nTT\n"
+                + "@read3\nCCCAAA\n+\nIIIIII\n"
+                + "\nTTTTGG";
+        Path file = Files.createTempFile("reads", ".txt");
+        try {
+            Files.write(file, content.getBytes(StandardCharsets.US_ASCII));
+            List<String> expected = Arrays.asList("ACGTAC", "GGTTAA", "ACGTTT", "CCCAAA", "TTTTGG");
+            for (int segmentSize : new int[]{content.length(), 40, 30}) {
+                PhiX174ErrorFreeOverlap.ReadStore store =
+                        new PhiX174ErrorFreeOverlap.MappedReadsReader(segmentSize).read(file);
+
+                assertEquals(expected.size(), store.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.get(i), store.getRead(i));
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testMappedReadsReader_emptyFastaRecordsAndDuplicates() throws IOException {
+        String content = ">empty\n"
+                + ">read1\nGGTTAA\nACGTAC\n"
+                + ">read2\nGG\nTTAA\n"
+                + "@read3\nGGTTAA\n+\nIIIIII\n"
+                + ">last\n";
+        Path file = Files.createTempFile("reads", ".txt");
+        try {
+            Files.write(file, content.getBytes(StandardCharsets.US_ASCII));
+            for (int segmentSize : new int[]{content.length(), 24}) {
+                PhiX174ErrorFreeOverlap.ReadStore store =
+                        new PhiX174ErrorFreeOverlap.MappedReadsReader(segmentSize).read(file);
+
+                assertEquals(3, store.size());
+                assertArrayEquals(new String[]{"GGTTAAACGTAC", "GGTTAA"}, store.distinctReads());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testOverlapGraphFile_saveAndLoad() throws IOException {
+        String[] reads = generateDistinctReads(200, 150, 10);
+        Path file = Files.createTempFile("overlaps", ".bin");
+        try {
+            Files.delete(file);
+            PhiX174ErrorFreeOverlap.CachedOverlapGraphBuilder builder =
+                    new PhiX174ErrorFreeOverlap.CachedOverlapGraphBuilder(file,
+                            MIN_OVERLAP_LENGTH, "pairwise", solver::buildOverlapGraph);
+            List<PhiX174ErrorFreeOverlap.Vertex>[] expected = builder.buildOverlapGraph(reads);
+            assertFalse(builder.isLoaded());
+
+            assertSameGraph(expected, builder.buildCompactOverlapGraph(reads).toAdjacencyList());
+            assertTrue(builder.isLoaded());
+
+            // Another minimum overlap length or builder configuration makes the graph stale.
+            PhiX174ErrorFreeOverlap solver3 = new PhiX174ErrorFreeOverlap(3);
+            PhiX174ErrorFreeOverlap.CachedOverlapGraphBuilder otherBuilder =
+                    new PhiX174ErrorFreeOverlap.CachedOverlapGraphBuilder(file, 3, "pairwise",
+                            solver3::buildOverlapGraph);
+            assertSameGraph(solver3.buildOverlapGraph(reads),
+                    otherBuilder.buildOverlapGraph(reads));
+            assertFalse(otherBuilder.isLoaded());
+            otherBuilder = new PhiX174ErrorFreeOverlap.CachedOverlapGraphBuilder(file, 3,
+                    "suffix-array", solver3::buildOverlapGraph);
+            otherBuilder.buildOverlapGraph(reads);
+            assertFalse(otherBuilder.isLoaded());
+
+            // Changed reads make the saved graph stale.
+            reads[0] = reads[0].substring(1) + reads[0].charAt(0);
+            assertSameGraph(solver.buildOverlapGraph(reads), builder.buildOverlapGraph(reads));
+            assertFalse(builder.isLoaded());
+
+            // Corrupted counts are rejected before anything is allocated.
+            byte[] content = Files.readAllBytes(file);
+            Arrays.fill(content, 32, 36, (byte) 0xFF);
+            Files.write(file, content);
+            assertSameGraph(solver.buildOverlapGraph(reads), builder.buildOverlapGraph(reads));
+            assertFalse(builder.isLoaded());
+            builder.buildOverlapGraph(reads);
+            assertTrue(builder.isLoaded());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testOverlapGraphFile_segments() throws IOException {
+        String[] reads = generateDistinctReads(200, 150, 10);
+        PhiX174ErrorFreeOverlap.CompactOverlapGraph graph = solver.buildCompactOverlapGraph(reads);
+        long checksum = PhiX174ErrorFreeOverlap.OverlapGraphFile.checksum(reads);
+        Path file = Files.createTempFile("overlaps", ".bin");
+        try {
+            // Segments of 4 values, the file layout does not depend on the segment size.
+            PhiX174ErrorFreeOverlap.OverlapGraphFile.save(file, graph, checksum,
+                    MIN_OVERLAP_LENGTH, "pairwise", 2);
+            for (int segmentShift : new int[]{2, 5, 28}) {
+                PhiX174ErrorFreeOverlap.CompactOverlapGraph loaded =
+                        PhiX174ErrorFreeOverlap.OverlapGraphFile.load(file, checksum,
+                                MIN_OVERLAP_LENGTH, "pairwise", segmentShift);
+
+                assertEquals(graph.getEdgesNumber(), loaded.getEdgesNumber());
+                assertSameGraph(graph.toAdjacencyList(), loaded.toAdjacencyList());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testApproximateOverlapGraph_noErrorsSameAsPairwise() {
+        String[] reads = generateDistinctReads(200, 150, 70);
+        PhiX174ErrorFreeOverlap.ApproximateOverlapGraphBuilder builder =
+                new PhiX174ErrorFreeOverlap.ApproximateOverlapGraphBuilder(MIN_OVERLAP_LENGTH, 0);
+
+        assertSameGraph(solver.buildOverlapGraph(reads), builder.buildOverlapGraph(reads));
+    }
+
+    @Test
+    public void testApproximateOverlapGraph_mismatchAndIndel() {
+        String[] reads = {"ACGTTGCAAGGT", "TGCATGGTCCAA", "GCAGGTACCA"};
+        PhiX174ErrorFreeOverlap.ApproximateOverlapGraphBuilder builder =
+                new PhiX174ErrorFreeOverlap.ApproximateOverlapGraphBuilder(6, 1);
+
+        List<PhiX174ErrorFreeOverlap.Vertex>[] graph = builder.buildOverlapGraph(reads);
+
+        // TGCAAGGT vs TGCATGGT: one mismatch.
+        PhiX174ErrorFreeOverlap.Vertex vertex = graph[0].get(0);
+        assertEquals(1, vertex.index);
+        assertEquals(8, vertex.weight);
+        assertEquals(1, vertex.errors);
+        // GCAAGGT vs GCAGGT: one deletion.
+        assertEquals(2, graph[0].get(1).index);
+        assertEquals(6, graph[0].get(1).weight);
+        assertEquals(1, graph[0].get(1).errors);
+        assertTrue(solver.buildOverlapGraph(reads)[0].isEmpty());
+    }
+
+    @Test
+    public void testIncrementalOverlapGraph_sameAsPairwise() {
+        String[] reads = generateDistinctReads(200, 150, 10);
+        PhiX174ErrorFreeOverlap.IncrementalOverlapGraph graph =
+                new PhiX174ErrorFreeOverlap.IncrementalOverlapGraph(MIN_OVERLAP_LENGTH);
+        for (int from = 0; from < reads.length; from += 40) {
+            graph.addReads(Arrays.copyOfRange(reads, from, Math.min(from + 40, reads.length)));
+            String[] added = Arrays.copyOf(reads, graph.getReadsNumber());
+
+            assertSameGraph(solver.buildOverlapGraph(added), graph.getAdjacencyList());
+        }
+        assertEquals(0, graph.addReads(reads[0], reads[1]));
+    }
+
+    @Test
+    public void testAssemblyGenomeFromReads_incremental() {
+        solver = new PhiX174ErrorFreeOverlap(2);
+        PhiX174ErrorFreeOverlap.IncrementalOverlapGraph graph =
+                new PhiX174ErrorFreeOverlap.IncrementalOverlapGraph(2);
+        graph.addReads("ATAAG", "TTCAT", "GGTTC", "ATAAG");
+        graph.addReads("GGGTT", "CATAA", "GTTCA", "AAGGG", "TTCAT");
+
+        verifyGenome("AAGGGTTCAT", solver.assemblyGenome(graph));
+    }
+
+    @Test
+    public void testFingerprintOverlapGraph_sameAsPairwise() {
+        String[] reads = generateDistinctReads(200, 150, 10);
+        PhiX174ErrorFreeOverlap.FingerprintOverlapGraphBuilder builder =
+                new PhiX174ErrorFreeOverlap.FingerprintOverlapGraphBuilder(MIN_OVERLAP_LENGTH);
+
+        assertSameGraph(solver.buildOverlapGraph(reads), builder.buildOverlapGraph(reads));
+
+        // Periodic reads have several overlaps with the same read, the longest one is kept.
+        reads = new String[]{"ACACAC", "CACACA", "ACACAG", "GACACA"};
+        assertSameGraph(solver.buildOverlapGraph(reads), builder.buildOverlapGraph(reads));
+    }
+
+    @Test
+    public void testUnitigGraph_chains() {
+        /*
+         * 0 --3--> 1 --3--> 2 --2--> 3 --1--> 0
+         *           \----------3-----/
+         * Read 1 has two best successors, read 3 has the best predecessor 1, so the only
+         * unitig longer than a read is 0 -> 1.
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        List<PhiX174ErrorFreeOverlap.Vertex>[] graph = new List[4];
+        graph[0] = new LinkedList<>();
+        graph[0].add(new PhiX174ErrorFreeOverlap.Vertex(1, 3));
+        graph[1] = new LinkedList<>();
+        graph[1].add(new PhiX174ErrorFreeOverlap.Vertex(2, 3));
+        graph[1].add(new PhiX174ErrorFreeOverlap.Vertex(3, 3));
+        graph[2] = new LinkedList<>();
+        graph[2].add(new PhiX174ErrorFreeOverlap.Vertex(3, 2));
+        graph[3] = new LinkedList<>();
+        graph[3].add(new PhiX174ErrorFreeOverlap.Vertex(0, 1));
+
+        PhiX174ErrorFreeOverlap.UnitigGraph unitigGraph =
+                PhiX174ErrorFreeOverlap.UnitigGraph.of(graph);
+
+        assertEquals(3, unitigGraph.getVerticesNumber());
+        assertArrayEquals(new int[]{0, 1}, unitigGraph.getReads(0));
+        assertEquals("AACCG", unitigGraph.getSequence(new String[]{"AACC", "ACCG", "CCGT",
+                "CGTA"}, 0));
+        verifyPath(new Integer[]{1, 2}, unitigGraph.getAdjacencyList()[0].toArray(
+                new PhiX174ErrorFreeOverlap.Vertex[2]));
+
+        Deque<PhiX174ErrorFreeOverlap.Vertex> path = solver.buildLongestHamiltonianPath(
+                unitigGraph.getAdjacencyList());
+        PhiX174ErrorFreeOverlap.Vertex[] expanded = unitigGraph.expand(path)
+                .toArray(new PhiX174ErrorFreeOverlap.Vertex[4]);
+        verifyPath(new Integer[]{0, 1, 2, 3}, expanded);
+        assertEquals(3, expanded[1].weight);
+        assertEquals(3, expanded[2].weight);
+        assertEquals(2, expanded[3].weight);
+    }
+
+    @Test
+    public void testAssemblyGenomeFromReads_unitigs() {
+        String genomeString = String.valueOf(generateGenome(300));
+        String[] reads = generateCircularReads(genomeString, 30);
+
+        solver = new PhiX174ErrorFreeOverlap(12, null, null, true);
+        String assemblyGenome = solver.assemblyGenome(reads);
+
+        verifyGenome(genomeString, assemblyGenome);
+    }
+
+    @Test
+    public void testTopOverlapsGraph_keepsBestEdges() {
+        String[] reads = generateDistinctReads(100, 80, 10);
+        List<PhiX174ErrorFreeOverlap.Vertex>[] graph = solver.buildOverlapGraph(reads);
+        PhiX174ErrorFreeOverlap.TopOverlapsGraphBuilder builder =
+                new PhiX174ErrorFreeOverlap.TopOverlapsGraphBuilder(MIN_OVERLAP_LENGTH, 3);
+
+        List<PhiX174ErrorFreeOverlap.Vertex>[] topGraph = builder.buildOverlapGraph(reads);
+
+        long discardedEdges = 0;
+        for (int i = 0; i < graph.length; i++) {
+            List<PhiX174ErrorFreeOverlap.Vertex> expected =
+                    graph[i].subList(0, Math.min(graph[i].size(), 3));
+            assertSameAdjacentVertices(expected, topGraph[i]);
+            discardedEdges += graph[i].size() - expected.size();
+        }
+        assertEquals(3, builder.getMaxOverlaps());
+        assertEquals(discardedEdges, builder.getDiscardedEdges());
+    }
+
+    @Test
+    public void testCycleCoverLayout_patchesCycles() {
+        /*
+         * 0 <--5--> 1 --1--> 2 <--5--> 3 --1--> 0
+         * The cycle cover is {0, 1} and {2, 3}, patching replaces 1 -> 0 and 3 -> 2.
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        List<PhiX174ErrorFreeOverlap.Vertex>[] graph = new List[4];
+        graph[0] = new LinkedList<>();
+        graph[0].add(new PhiX174ErrorFreeOverlap.Vertex(1, 5));
+        graph[1] = new LinkedList<>();
+        graph[1].add(new PhiX174ErrorFreeOverlap.Vertex(0, 5));
+        graph[1].add(new PhiX174ErrorFreeOverlap.Vertex(2, 1));
+        graph[2] = new LinkedList<>();
+        graph[2].add(new PhiX174ErrorFreeOverlap.Vertex(3, 5));
+        graph[3] = new LinkedList<>();
+        graph[3].add(new PhiX174ErrorFreeOverlap.Vertex(2, 5));
+        graph[3].add(new PhiX174ErrorFreeOverlap.Vertex(0, 1));
+
+        PhiX174ErrorFreeOverlap.CycleCoverLayoutStrategy layoutStrategy =
+                new PhiX174ErrorFreeOverlap.CycleCoverLayoutStrategy();
+        Deque<PhiX174ErrorFreeOverlap.Vertex> path = layoutStrategy.buildLayout(graph);
+        PhiX174ErrorFreeOverlap.Vertex[] pathVertices =
+                path.toArray(new PhiX174ErrorFreeOverlap.Vertex[path.size()]);
+
+        assertEquals(2, layoutStrategy.getCyclesNumber());
+        verifyPath(new Integer[]{0, 1, 2, 3}, pathVertices);
+        assertEquals(5, pathVertices[1].weight);
+        assertEquals(1, pathVertices[2].weight);
+        assertEquals(5, pathVertices[3].weight);
+    }
+
+    @Test
+    public void testAssemblyGenomeFromReads_cycleCover() {
+        String genomeString = String.valueOf(generateGenome(300));
+        String[] reads = generateCircularReads(genomeString, 30);
+
+        solver = new PhiX174ErrorFreeOverlap(12, null,
+                new PhiX174ErrorFreeOverlap.CycleCoverLayoutStrategy());
+        String assemblyGenome = solver.assemblyGenome(reads);
+
+        verifyGenome(genomeString, assemblyGenome);
+    }
+
+    @Test
+    public void testFindComponents_inducedSubgraph() {
+        /*
+         * 0 -> 1, 2 -> 3 <- 4, 5; vertex 2 is left out, 3 and 4 stay connected without it.
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        List<PhiX174ErrorFreeOverlap.Vertex>[] graph = new List[6];
+        for (int i = 0; i < graph.length; i++) {
+            graph[i] = new LinkedList<>();
+        }
+        graph[0].add(new PhiX174ErrorFreeOverlap.Vertex(1, 3));
+        graph[2].add(new PhiX174ErrorFreeOverlap.Vertex(3, 3));
+        graph[4].add(new PhiX174ErrorFreeOverlap.Vertex(3, 3));
+        List<int[]> components =
+                PhiX174ErrorFreeOverlap.findComponents(graph, new int[]{0, 1, 3, 4, 5});
+
+        assertEquals(3, components.size());
+        assertArrayEquals(new int[]{0, 1}, components.get(0));
+        assertArrayEquals(new int[]{3, 4}, components.get(1));
+        assertArrayEquals(new int[]{5}, components.get(2));
+    }
+
+    @Test
+    public void testAssemblyContigs_coverageGap() {
+        String genomeString = String.valueOf(generateGenome(400));
+        // Reads do not cover positions 200..229, the genome breaks into two linear contigs.
+        List<String> reads = new ArrayList<>();
+        for (int i = 0; i + 30 <= 200; i++) {
+            reads.add(genomeString.substring(i, i + 30));
+        }
+        for (int i = 230; i + 30 <= genomeString.length(); i++) {
+            reads.add(genomeString.substring(i, i + 30));
+        }
+        Collections.shuffle(reads, rnd);
+
+        solver = new PhiX174ErrorFreeOverlap(12);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int contigsNumber = solver.assemblyContigs(reads.toArray(new String[reads.size()]), 2,
+                new PrintStream(output, true));
+
+        assertEquals(2, contigsNumber);
+        Set<String> contigs = new HashSet<>();
+        StringBuilder contig = null;
+        for (String line : output.toString().split("\n")) {
+            if (line.startsWith(">")) {
+                if (contig != null) {
+                    contigs.add(contig.toString());
+                }
+                contig = new StringBuilder();
+            } else {
+                assertTrue(line.length() <= 60);
+                contig.append(line);
+            }
+        }
+        contigs.add(contig.toString());
+        assertEquals(new HashSet<>(Arrays.asList(genomeString.substring(0, 200),
+                genomeString.substring(230))), contigs);
+    }
+
+    @Test
+    public void testPackedReadStore_randomAccess() {
+        List<String> reads = Arrays.asList("ACGTTGCA", "", "NACGTACGTACGTACGTACGTACGTACGTACGTN",
+                "GGNNCCXA");
+        PhiX174ErrorFreeOverlap.PackedReadStore store =
+                PhiX174ErrorFreeOverlap.PackedReadStore.of(reads);
+
+        assertEquals(reads.size(), store.size());
+        for (int i = 0; i < reads.size(); i++) {
+            assertEquals(reads.get(i), store.getRead(i));
+            for (int j = 0; j < reads.get(i).length(); j++) {
+                assertEquals(reads.get(i).charAt(j), store.charAt(i, j));
+            }
+        }
+        assertTrue(store.isMasked(3, 6));
+        assertFalse(store.isMasked(3, 7));
+        assertEquals(-1, store.kmer(2, 0, 4));
+        assertEquals(-1, store.kmer(3, 1, 2));
+        assertEquals("TTGC", PhiX174ErrorFreeOverlap.PackedReadStore.decodeKmer(
+                store.kmer(0, 3, 4), 4));
+        assertEquals("ACGTACGTACGTACGTACGTACGTACGTACGT",
+                PhiX174ErrorFreeOverlap.PackedReadStore.decodeKmer(store.kmer(2, 1, 32), 32));
+    }
+
+    @Test
+    public void testPackedReadStore_manyReads() {
+        List<String> reads = new ArrayList<>();
+        Random random = new Random(19);
+        for (int i = 0; i < 100; i++) {
+            char[] read = new char[random.nextInt(70)];
+            for (int j = 0; j < read.length; j++) {
+                read[j] = "ACGTN".charAt(random.nextInt(5));
+            }
+            reads.add(new String(read));
+        }
+        PhiX174ErrorFreeOverlap.PackedReadStore store =
+                PhiX174ErrorFreeOverlap.PackedReadStore.of(reads);
+
+        assertEquals(reads.size(), store.size());
+        for (int i = 0; i < reads.size(); i++) {
+            assertEquals(reads.get(i).length(), store.length(i));
+            assertEquals(reads.get(i), store.getRead(i));
+        }
+    }
+
+    @Test
+    public void testPackedReadStore_overlapSameAsStringsOverlap() {
+        String genome = String.valueOf(generateGenome(400));
+        List<String> reads = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            int start = rnd.nextInt(300);
+            reads.add(genome.substring(start, start + 30 + rnd.nextInt(70)));
+        }
+        reads.add("ACGNTACGT");
+        reads.add("TACGTACGNTA");
+        PhiX174ErrorFreeOverlap.PackedReadStore store =
+                PhiX174ErrorFreeOverlap.PackedReadStore.of(reads);
+        byte[][] encodedReads =
+                PhiX174ErrorFreeOverlap.encodeReads(reads.toArray(new String[reads.size()]));
+        PhiX174ErrorFreeOverlap.OverlapKernel kernel =
+                new PhiX174ErrorFreeOverlap.ScalarOverlapKernel();
+        PhiX174ErrorFreeOverlap.Statistics statistics = new PhiX174ErrorFreeOverlap.Statistics();
+
+        for (int i = 0; i < reads.size(); i++) {
+            for (int j = 0; j < reads.size(); j++) {
+                assertEquals(kernel.overlap(encodedReads[i], encodedReads[j], 3),
+                        store.overlap(i, j, 3, statistics));
+            }
+        }
+        assertEquals(reads.size() * reads.size(), statistics.getPairsCompared());
+    }
+
+    @Test
+    public void testPackedReadStore_overlapCountsCharsAsStringsOverlap() {
+        String[] reads = new String[]{"ACGTTG", "TTGCAA", "GTTGCA", "CCCCCC", "ACGNTA", "NTACGT"};
+        PhiX174ErrorFreeOverlap.PackedReadStore store =
+                PhiX174ErrorFreeOverlap.PackedReadStore.of(Arrays.asList(reads));
+        PhiX174ErrorFreeOverlap.Statistics statistics = new PhiX174ErrorFreeOverlap.Statistics();
+
+        for (int i = 0; i < reads.length; i++) {
+            for (int j = 0; j < reads.length; j++) {
+                statistics.reset();
+                solver.getStatistics().reset();
+                assertEquals(solver.stringsOverlap(reads[i], reads[j]),
+                        store.overlap(i, j, 1, statistics));
+                assertEquals(solver.getStatistics().getCharsCompared(),
+                        statistics.getCharsCompared());
+            }
+        }
+    }
+
+    @Test
+    public void testAssemblyGenomeFromReads_packedStoreCircularReads() {
+        String genome = String.valueOf(generateGenome(300));
+        List<String> reads = new ArrayList<>(Arrays.asList(generateCircularReads(genome, 40)));
+        reads.addAll(reads.subList(0, 50));
+        Collections.shuffle(reads, rnd);
+        PhiX174ErrorFreeOverlap.PackedReadStore store =
+                PhiX174ErrorFreeOverlap.PackedReadStore.of(reads);
+
+        assertEquals(genome.length(), store.distinctReads().length);
+        solver = new PhiX174ErrorFreeOverlap(20);
+        verifyGenome(genome, solver.assemblyGenome(store));
+    }
+
+    @Test
+    public void testAssemblyGenomeFromReads_packedStore() {
+        solver = new PhiX174ErrorFreeOverlap(2);
+        String genome = solver.assemblyGenome(PhiX174ErrorFreeOverlap.PackedReadStore.of(
+                Arrays.asList("ATAAG", "TTCAT", "GGTTC", "GGGTT", "CATAA", "GTTCA", "AAGGG")));
+
+        verifyGenome("AAGGGTTCAT", genome);
+    }
+
+    @Test
+    public void testAssemblyGenomeFromReads_packedStoreConfiguredBuilder() {
+        String genome = String.valueOf(generateGenome(300));
+        List<String> reads = Arrays.asList(generateCircularReads(genome, 40));
+        Collections.shuffle(reads, rnd);
+        PhiX174ErrorFreeOverlap.PackedReadStore store =
+                PhiX174ErrorFreeOverlap.PackedReadStore.of(reads);
+        PhiX174ErrorFreeOverlap.MinimizerOverlapGraphBuilder builder =
+                new PhiX174ErrorFreeOverlap.MinimizerOverlapGraphBuilder(20, 5, 8);
+        solver = new PhiX174ErrorFreeOverlap(20, builder);
+
+        String assembledGenome = solver.assemblyGenome(store);
+
+        assertTrue(builder.getVerifiedPairs() > 0);
+        // Verified pairs and the circular overlap of the genome.
+        assertEquals(builder.getVerifiedPairs() + 1, solver.getStatistics().getPairsCompared());
+        assertTrue(solver.getStatistics().getCharsCompared() > 0);
+        verifyGenome(genome, assembledGenome);
+    }
+
+    @Test
+    public void testStatistics_countersAndSummary() {
+        solver = new PhiX174ErrorFreeOverlap(1);
+        String[] reads = new String[]{"ACG", "CGT", "GTA"};
+        solver.assemblyGenome(reads);
+        PhiX174ErrorFreeOverlap.Statistics statistics = solver.getStatistics();
+
+        // 6 ordered pairs of the graph and the circular overlap of the genome.
+        assertEquals(7, statistics.getPairsCompared());
+        assertTrue(statistics.getCharsCompared() > 0);
+        assertEquals(solver.buildOverlapGraph(reads)[0].size()
+                + solver.buildOverlapGraph(reads)[1].size()
+                + solver.buildOverlapGraph(reads)[2].size(), statistics.getEdgesEmitted());
+        assertEquals(3, statistics.getSearchDepth());
+        assertTrue(statistics.summary().startsWith("pairs="));
+
+        statistics.reset();
+        assertEquals(0, statistics.getPairsCompared());
+        assertEquals(0, statistics.getPhaseMillis(
+                PhiX174ErrorFreeOverlap.Statistics.Phase.LAYOUT));
+    }
+
     private void verifyGenome(String expected, String actual) {
         assertTrue(expected.length() == actual.length());
 
@@ -302,6 +1088,46 @@ public class PhiX174ErrorFreeOverlapTest {
         assertTrue(forwardOverlap + backwardOverlap == expected.length());
     }
 
+    private static void assertSameGraph(List<PhiX174ErrorFreeOverlap.Vertex>[] expected,
+                                        List<PhiX174ErrorFreeOverlap.Vertex>[] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertSameAdjacentVertices(expected[i], actual[i]);
+        }
+    }
+
+    private static void assertSameAdjacentVertices(List<PhiX174ErrorFreeOverlap.Vertex> expected,
+                                                   List<PhiX174ErrorFreeOverlap.Vertex> actual) {
+        assertEquals(expected.size(), actual.size());
+        Iterator<PhiX174ErrorFreeOverlap.Vertex> actualIterator = actual.iterator();
+        for (PhiX174ErrorFreeOverlap.Vertex expectedVertex : expected) {
+            PhiX174ErrorFreeOverlap.Vertex actualVertex = actualIterator.next();
+            assertEquals(expectedVertex.index, actualVertex.index);
+            assertEquals(expectedVertex.weight, actualVertex.weight);
+        }
+    }
+
+    private static String[] generateDistinctReads(int genomeLength, int readsNumber, int readLength) {
+        char[] genomeChars = generateGenome(genomeLength);
+        Set<String> reads = new HashSet<>();
+        for (int i = 0; i < readsNumber; i++) {
+            reads.add(generateRead(genomeChars, readLength));
+        }
+        return reads.toArray(new String[reads.size()]);
+    }
+
+    /**
+     * Returns reads of the circular genome starting at every position.
+     */
+    private static String[] generateCircularReads(String genome, int readLength) {
+        String circularGenome = genome + genome;
+        String[] reads = new String[genome.length()];
+        for (int i = 0; i < reads.length; i++) {
+            reads[i] = circularGenome.substring(i, i + readLength);
+        }
+        return reads;
+    }
+
     private static String generateRead(char[] genome, int readLength) {
         char[] readChars = new char[readLength];
         int startPosition = rnd.nextInt(genome.length);
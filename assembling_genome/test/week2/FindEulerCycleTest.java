@@ -427,6 +427,65 @@ public class FindEulerCycleTest {
         validatePath(graph, path);
     }
 
+    @Test
+    public void testBuildCycle_sample3() {
+        int[][] edgesArray = new int[][]{{1, 2},
+                {2, 1},
+                {1, 4},
+                {4, 1},
+                {2, 4},
+                {3, 2},
+                {4, 3}};
+        FindEulerCycle.Graph graph = buildGraph(4, 7, edgesArray);
+
+        int[] cycle = solver.buildCycle(graph);
+
+        assertEquals(8, cycle.length);
+        assertEquals(0, cycle[0]);
+        assertEquals(0, cycle[7]);
+        assertEquals(0, solver.buildCycle(buildGraph(3, 2, new int[][]{{1, 2}, {2, 1}})).length);
+    }
+
+    @Test
+    public void testEulerTour_largeGraph() {
+        int n = 100000;
+        int m = 1000000;
+        int[] sources = new int[m];
+        int[] targets = new int[m];
+        int edges = 0;
+        for (int i = 0; i < n; i++) {
+            sources[edges] = i;
+            targets[edges++] = (i + 1) % n;
+        }
+        ThreadLocalRandom localRandom = ThreadLocalRandom.current();
+        while (edges < m) {
+            int cycleLength = Math.min(localRandom.nextInt(1, 50), m - edges);
+            int first = localRandom.nextInt(n);
+            int vertex = first;
+            for (int i = 0; i < cycleLength; i++) {
+                int next = i == cycleLength - 1 ? first : localRandom.nextInt(n);
+                sources[edges] = vertex;
+                targets[edges++] = next;
+                vertex = next;
+            }
+        }
+
+        FindEulerCycle.EulerTour tour = FindEulerCycle.EulerTour.of(n, sources, targets, m);
+        int[] cycle = tour.build(0);
+
+        assertEquals(m + 1, cycle.length);
+        assertEquals(cycle[0], cycle[m]);
+        long[] expectedEdges = new long[m];
+        long[] actualEdges = new long[m];
+        for (int e = 0; e < m; e++) {
+            expectedEdges[e] = (long) sources[e] * n + targets[e];
+            actualEdges[e] = (long) cycle[e] * n + cycle[e + 1];
+        }
+        Arrays.sort(expectedEdges);
+        Arrays.sort(actualEdges);
+        assertTrue(Arrays.equals(expectedEdges, actualEdges));
+    }
+
     @Test
     public void testFindEulerianCycle_singleVertexGraph() {
         int[][] edgesArray = new int[][]{{1, 1}};
@@ -6,9 +6,17 @@ import util.Asserts;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static util.CommonTestHelper.generateGenome;
 import static util.CommonTestHelper.generateKmer;
@@ -52,6 +60,159 @@ public class PhiX174kMerCompositionTest {
         testAssemblyGenome(genomeLength, kmerLength);
     }
 
+    @Test
+    public void assemblyGenome_notNucleotides() throws Exception {
+        testAssemblyGenome("AANTTATAGG".toCharArray(), 5);
+    }
+
+    @Test
+    public void assemblyGenome_32mers() throws Exception {
+        char[] genome = generateGenome(300);
+        Arrays.fill(genome, 100, 134, 'T');
+        List<String> kmers = new ArrayList<>();
+        for (int i = 0; i < genome.length; i++) {
+            kmers.add(generateKmer(genome, 32, i));
+        }
+
+        // The 32-mer of T bases is packed to -1 and is still a valid k-mer.
+        assertEquals(-1, PhiX174kMerComposition.PackedDeBruijnGraph.encode(kmers.get(100), 0, 32));
+        assertNotNull(solver.buildKmerGraph(kmers));
+        testAssemblyGenome(genome, 32);
+    }
+
+    @Test
+    public void buildPackedDeBruijnGraph() throws Exception {
+        char[] genome = "AAATTATAGG".toCharArray();
+        List<String> kmers = new ArrayList<>();
+        for (int i = 0; i < genome.length; i++) {
+            kmers.add(generateKmer(genome, 5, i));
+        }
+
+        PhiX174kMerComposition.PackedDeBruijnGraph graph = solver.buildPackedDeBruijnGraph(kmers);
+        assertEquals(10, graph.getVerticesNumber());
+        assertEquals(10, graph.getEdgesNumber());
+        for (int v = 0; v < graph.getVerticesNumber(); v++) {
+            assertEquals(1, graph.getInDegree(v));
+            assertEquals(1, graph.getOutDegree(v));
+            String vertex = graph.getVertexId(v);
+            assertEquals(v, graph.getVertex(PhiX174kMerComposition.PackedDeBruijnGraph.encode(vertex, 0, 4)));
+            String next = graph.getVertexId(graph.getEdgeTarget(graph.getOutgoingEdge(v, 0)));
+            assertEquals(vertex.substring(1), next.substring(0, 3));
+        }
+        int[] circuit = solver.buildPath(graph);
+        assertEquals(11, circuit.length);
+        assertEquals(circuit[0], circuit[10]);
+
+        assertNull(solver.buildPackedDeBruijnGraph(Arrays.asList("AANTT", "ANTTA")));
+    }
+
+    @Test
+    public void buildKmerGraph() throws Exception {
+        char[] genome = generateGenome(200);
+        Set<String> distinctKmers = new HashSet<>();
+        List<String> kmers = new ArrayList<>();
+        for (int i = 0; i < genome.length; i++) {
+            if (distinctKmers.add(generateKmer(genome, 12, i))) {
+                kmers.add(generateKmer(genome, 12, i));
+            }
+        }
+        PhiX174kMerComposition.KmerGraph graph = solver.buildKmerGraph(kmers);
+        PhiX174kMerComposition.PackedDeBruijnGraph packedGraph = solver.buildPackedDeBruijnGraph(kmers);
+        assertTrue(graph instanceof PhiX174kMerComposition.SuccinctDeBruijnGraph);
+        PhiX174kMerComposition.SuccinctDeBruijnGraph succinctGraph =
+                (PhiX174kMerComposition.SuccinctDeBruijnGraph) graph;
+        assertEquals(packedGraph.getVerticesNumber(), graph.getVerticesNumber());
+        assertEquals(packedGraph.getEdgesNumber(), graph.getEdgesNumber());
+        int vertices = 0;
+        for (int v = 0; v < graph.getVertexIdBound(); v++) {
+            if (!graph.isVertex(v)) {
+                continue;
+            }
+            vertices++;
+            String vertex = succinctGraph.getVertexId(v);
+            int packedVertex = packedGraph.getVertex(
+                    PhiX174kMerComposition.PackedDeBruijnGraph.encode(vertex, 0, 11));
+            assertEquals(packedGraph.getOutDegree(packedVertex), graph.getOutDegree(v));
+            assertEquals(packedGraph.getInDegree(packedVertex), graph.getInDegree(v));
+            for (int i = 0; i < graph.getOutDegree(v); i++) {
+                String successor = succinctGraph.getVertexId(graph.getSuccessor(v, i));
+                assertEquals(vertex.substring(1), successor.substring(0, 10));
+            }
+            for (int i = 0; i < graph.getInDegree(v); i++) {
+                String predecessor = succinctGraph.getVertexId(graph.getPredecessor(v, i));
+                assertEquals(vertex.substring(0, 10), predecessor.substring(1));
+            }
+        }
+
+        assertEquals(graph.getVerticesNumber(), vertices);
+
+        kmers.add(kmers.get(0));
+        kmers.add(kmers.get(1));
+        assertTrue(solver.buildKmerGraph(kmers) instanceof PhiX174kMerComposition.PackedDeBruijnGraph);
+    }
+
+    @Test
+    public void succinctDeBruijnGraph() throws Exception {
+        PhiX174kMerComposition.SuccinctDeBruijnGraph graph =
+                new PhiX174kMerComposition.SuccinctDeBruijnGraph(3, 4);
+        for (String kmer : Arrays.asList("ACG", "CGT", "CGA", "GAC", "AAA")) {
+            assertTrue(graph.addKMer(PhiX174kMerComposition.PackedDeBruijnGraph.encode(kmer, 0, 3)));
+        }
+        assertFalse(graph.addKMer(PhiX174kMerComposition.PackedDeBruijnGraph.encode("CGT", 0, 3)));
+
+        assertEquals(5, graph.getVerticesNumber());
+        assertEquals(5, graph.getEdgesNumber());
+        int cg = graph.getVertex(PhiX174kMerComposition.PackedDeBruijnGraph.encode("CG", 0, 2));
+        assertEquals("CG", graph.getVertexId(cg));
+        assertEquals(2, graph.getOutDegree(cg));
+        assertEquals("GA", graph.getVertexId(graph.getSuccessor(cg, 0)));
+        assertEquals("GT", graph.getVertexId(graph.getSuccessor(cg, 1)));
+        assertEquals(1, graph.getInDegree(cg));
+        assertEquals("AC", graph.getVertexId(graph.getPredecessor(cg, 0)));
+        int aa = graph.getVertex(PhiX174kMerComposition.PackedDeBruijnGraph.encode("AA", 0, 2));
+        assertEquals(aa, graph.getSuccessor(aa, 0));
+        assertEquals(aa, graph.getPredecessor(aa, 0));
+    }
+
+    @Test
+    public void succinctDeBruijnGraph_grows() throws Exception {
+        char[] genome = generateGenome(1000);
+        PhiX174kMerComposition.SuccinctDeBruijnGraph graph =
+                new PhiX174kMerComposition.SuccinctDeBruijnGraph(20, 1);
+        for (int i = 0; i < genome.length; i++) {
+            String kmer = generateKmer(genome, 20, i);
+            graph.addKMer(PhiX174kMerComposition.PackedDeBruijnGraph.encode(kmer, 0, 20));
+        }
+
+        assertTrue(4L * graph.getVerticesNumber() <= 3L * graph.getVertexIdBound());
+        for (int i = 0; i < genome.length; i++) {
+            String vertex = generateKmer(genome, 19, i);
+            int id = graph.getVertex(PhiX174kMerComposition.PackedDeBruijnGraph.encode(vertex, 0, 19));
+            assertTrue(graph.isVertex(id));
+            assertEquals(vertex, graph.getVertexId(id));
+            assertEquals(generateKmer(genome, 19, i + 1),
+                    graph.getVertexId(graph.getSuccessor(id, 0)));
+        }
+    }
+
+    @Test
+    public void kmerTable() throws Exception {
+        PhiX174kMerComposition.KmerTable table = new PhiX174kMerComposition.KmerTable(4);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 10000; i++) {
+            long key = random.nextInt(5000) * 0x100000000L;
+            Integer previous = expected.putIfAbsent(key, i);
+            assertEquals(previous != null ? previous : -1, table.putIfAbsent(key, i));
+        }
+        assertEquals(expected.size(), table.size());
+        for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+            assertEquals((int) entry.getValue(), table.get(entry.getKey()));
+        }
+        assertEquals(-1, table.get(1));
+        assertFalse(table.containsKey(5000 * 0x100000000L));
+    }
+
     private void testAssemblyGenome(int genomeLength, int kmerLength) {
         char[] genome = generateGenome(genomeLength);
         List<String> kmers = new ArrayList<>(genomeLength);
@@ -4,6 +4,7 @@ import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static util.CommonTestHelper.buildReads;
+import static util.CommonTestHelper.generateGenome;
 
 /**
  * Unit tests for {@link BubbleDetection}.
@@ -65,4 +66,57 @@ public class BubbleDetectionTest {
         assertEquals(3, bubbles);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testCountBubbles_packedStore() throws Exception {
+        int bubbles = solver.countBubbles(4, 6, BubbleDetection.PackedReadStore.of(buildReads(
+                "ATCCTAG",
+                "TCCTAGA",
+                "ATCGTCA",
+                "CGTCAGA",
+                "CGTTTCA",
+                "TTTCAGA"
+        )));
+
+        assertEquals(2, bubbles);
+    }
+
+    @Test
+    public void testCountBubbles_maskedBases() throws Exception {
+        int bubbles = solver.countBubbles(4, 6, buildReads(
+                "ATCCTAG",
+                "TCCTAGA",
+                "ATCGTCA",
+                "CGTCAGA",
+                "CGTTTCA",
+                "TTTCAGA",
+                "NNNNNNN"
+        ));
+
+        assertEquals(2, bubbles);
+    }
+
+    @Test
+    public void testCountBubbles_32mers() throws Exception {
+        char[] genome = generateGenome(100);
+        String read = String.valueOf(genome);
+        genome[50] = genome[50] == 'A' ? 'C' : 'A';
+
+        assertEquals(1, solver.countBubbles(32, 40, buildReads(read, String.valueOf(genome))));
+    }
+
+    @Test
+    public void testCountBubbles_maskedBasesInsideRead() throws Exception {
+        int bubbles = solver.countBubbles(4, 6, BubbleDetection.PackedReadStore.of(buildReads(
+                "ATCCTAG",
+                "TCCTAGA",
+                "ATCGTCA",
+                "CGTCAGA",
+                "CGTTTCA",
+                "TTTCAGA",
+                "TCCTNGA",
+                "CGTNTCA"
+        )));
+
+        assertEquals(2, bubbles);
+    }
+}
@@ -2,10 +2,15 @@ package week3;
 
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
 import static util.CommonTestHelper.buildReads;
+import static util.CommonTestHelper.generateGenome;
 
 /**
  * Unit tests for {@link SelectOptimalKmer}.
@@ -24,4 +29,44 @@ public class SelectOptimalKmerTest {
         int optimalK = solver.findOptimalK(reads);
         assertEquals(3, optimalK);
     }
+
+    @Test
+    public void findOptimalK_32mers() throws Exception {
+        String genome = String.valueOf(generateGenome(200));
+        Set<String> reads = new HashSet<>();
+        for (int i = 0; i < genome.length(); i++) {
+            reads.add((genome + genome).substring(i, i + 32));
+        }
+
+        assertEquals(32, solver.findOptimalK(reads));
+    }
+
+    @Test
+    public void findOptimalK_maskedBases() throws Exception {
+        Set<String> reads = buildReads("AACG",
+                "ACGT",
+                "CAAC",
+                "GTTG",
+                "TGCA",
+                "ACNGT");
+
+        int optimalK = solver.findOptimalK(reads);
+        assertEquals(3, optimalK);
+    }
+
+    @Test
+    public void findOptimalK_fastaFile() throws Exception {
+        Path file = Files.createTempFile("reads", ".fasta");
+        try {
+            Files.write(file, ">1\nAACG\n>2\nACGT\n>3\nCAAC\n>4\nGTTG\n>5\nTGCA\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            SelectOptimalKmer.ReadStore store = new SelectOptimalKmer.MappedReadsReader().read(file);
+
+            assertEquals(5, store.size());
+            assertEquals(3, solver.findOptimalK(store.toSet()));
+            assertEquals(3, solver.findOptimalK(SelectOptimalKmer.PackedReadStore.of(store)));
+        } finally {
+            Files.delete(file);
+        }
+    }
 }
\ No newline at end of file